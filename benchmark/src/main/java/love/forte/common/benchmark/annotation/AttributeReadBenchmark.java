@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2021. ForteScarlet All rights reserved.
+ * Project  parent
+ * File     AttributeReadBenchmark.java
+ *
+ * You can contact the author through the following channels:
+ * github https://github.com/ForteScarlet
+ * gitee  https://gitee.com/ForteScarlet
+ * email  ForteScarlet@163.com
+ * QQ     1149159218
+ */
+
+package love.forte.common.benchmark.annotation;
+
+import love.forte.common.utils.annotation.AnnotationProxyUtil;
+import love.forte.common.utils.annotation.AnnotationUtil;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 读取注解成员值的耗时，对比JDK的注解实例、{@link AnnotationProxyUtil#proxy(Class, java.lang.annotation.Annotation, java.util.Map) 动态代理}
+ * 与 {@link AnnotationProxyUtil#instance(Class, java.lang.annotation.Annotation, java.util.Map) 生成的实现类}。
+ *
+ * @author ForteScarlet
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+@State(Scope.Benchmark)
+public class AttributeReadBenchmark {
+
+    @Param({"jdk", "proxy", "generated"})
+    public String kind;
+
+    private Fixtures.Marker marker;
+
+    @Setup
+    public void setup() throws NoSuchMethodException {
+        final Fixtures.Marker jdk = Fixtures.Members.class.getMethod("m0").getAnnotation(Fixtures.Marker.class);
+        switch (kind) {
+            case "jdk":
+                marker = jdk;
+                break;
+            case "proxy":
+                marker = AnnotationProxyUtil.proxy(Fixtures.Marker.class, jdk, Collections.emptyMap());
+                break;
+            case "generated":
+                marker = AnnotationProxyUtil.instance(Fixtures.Marker.class, jdk, Collections.emptyMap());
+                break;
+            default:
+                throw new IllegalArgumentException(kind);
+        }
+    }
+
+    @Benchmark
+    public String value() {
+        return marker.value();
+    }
+
+    @Benchmark
+    public int primitive() {
+        return marker.priority();
+    }
+
+    /**
+     * 数组成员每次读取都会得到一个副本。
+     */
+    @Benchmark
+    public String[] array() {
+        return marker.codes();
+    }
+
+    @Benchmark
+    public Object property() {
+        return AnnotationUtil.getAnnotationProperty(marker, "value", String.class);
+    }
+}
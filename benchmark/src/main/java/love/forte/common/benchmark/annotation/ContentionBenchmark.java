@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2021. ForteScarlet All rights reserved.
+ * Project  parent
+ * File     ContentionBenchmark.java
+ *
+ * You can contact the author through the following channels:
+ * github https://github.com/ForteScarlet
+ * gitee  https://gitee.com/ForteScarlet
+ * email  ForteScarlet@163.com
+ * QQ     1149159218
+ */
+
+package love.forte.common.benchmark.annotation;
+
+import love.forte.common.utils.annotation.AnnotationUtil;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 多线程并发获取注解时的吞吐量，线程数分别为 1、2、4、8、16、32。
+ * <p>
+ * 每个线程依次获取 {@link Fixtures.Members} 中多个方法与多个类型上的注解，缓存均已预热。
+ * {@code inherited} 为通过 {@link AnnotationUtil#getInheritedAnnotation(java.lang.reflect.AnnotatedElement, Class)} 获取。
+ *
+ * @author ForteScarlet
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+public class ContentionBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Elements {
+        Method[] methods;
+
+        @Setup
+        public void setup() throws NoSuchMethodException {
+            methods = new Method[8];
+            for (int i = 0; i < methods.length; i++) {
+                methods[i] = Fixtures.Members.class.getMethod("m" + i);
+            }
+            AnnotationUtil.cleanCache();
+            for (Method method : methods) {
+                AnnotationUtil.getAnnotation(method, Fixtures.Marker.class);
+            }
+            for (Class<?> type : Fixtures.DEPTHS) {
+                AnnotationUtil.getAnnotation(type, Fixtures.Marker.class);
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+    }
+
+    private static Fixtures.Marker lookup(Elements elements, Cursor cursor) {
+        final int i = cursor.next++;
+        return AnnotationUtil.getAnnotation(elements.methods[i & 7], Fixtures.Marker.class);
+    }
+
+    private static Fixtures.Marker lookupType(Cursor cursor) {
+        final int i = cursor.next++;
+        return AnnotationUtil.getAnnotation(Fixtures.DEPTHS[(i & 0x7FFFFFFF) % Fixtures.DEPTHS.length], Fixtures.Marker.class);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Fixtures.Marker threads01(Elements elements, Cursor cursor) {
+        return lookup(elements, cursor);
+    }
+
+    @Benchmark
+    @Threads(2)
+    public Fixtures.Marker threads02(Elements elements, Cursor cursor) {
+        return lookup(elements, cursor);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Fixtures.Marker threads04(Elements elements, Cursor cursor) {
+        return lookup(elements, cursor);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public Fixtures.Marker threads08(Elements elements, Cursor cursor) {
+        return lookup(elements, cursor);
+    }
+
+    @Benchmark
+    @Threads(16)
+    public Fixtures.Marker threads16(Elements elements, Cursor cursor) {
+        return lookup(elements, cursor);
+    }
+
+    @Benchmark
+    @Threads(32)
+    public Fixtures.Marker threads32(Elements elements, Cursor cursor) {
+        return lookup(elements, cursor);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public Fixtures.Marker types08(Cursor cursor) {
+        return lookupType(cursor);
+    }
+
+    @Benchmark
+    @Threads(32)
+    public Fixtures.Marker types32(Cursor cursor) {
+        return lookupType(cursor);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public Fixtures.Marker inherited08(Elements elements, Cursor cursor) {
+        final int i = cursor.next++;
+        return AnnotationUtil.getInheritedAnnotation(elements.methods[i & 7], Fixtures.Marker.class);
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2021. ForteScarlet All rights reserved.
+ * Project  parent
+ * File     EqualsHashCodeBenchmark.java
+ *
+ * You can contact the author through the following channels:
+ * github https://github.com/ForteScarlet
+ * gitee  https://gitee.com/ForteScarlet
+ * email  ForteScarlet@163.com
+ * QQ     1149159218
+ */
+
+package love.forte.common.benchmark.annotation;
+
+import love.forte.common.utils.annotation.AnnotationProxyUtil;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 注解实例的 {@code equals} 与 {@code hashCode}。比较的对象均与之相等，但不是同一个实例。
+ *
+ * @author ForteScarlet
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+@State(Scope.Benchmark)
+public class EqualsHashCodeBenchmark {
+
+    @Param({"jdk", "proxy", "generated"})
+    public String kind;
+
+    private Fixtures.Marker marker;
+    private Fixtures.Marker same;
+    private Fixtures.Marker jdk;
+
+    @Setup
+    public void setup() throws NoSuchMethodException {
+        final Fixtures.Marker base = Fixtures.Members.class.getMethod("m0").getAnnotation(Fixtures.Marker.class);
+        final Fixtures.Marker equalJdk = Fixtures.Members.class.getMethod("equalToM0").getAnnotation(Fixtures.Marker.class);
+        switch (kind) {
+            case "jdk":
+                marker = base;
+                same = equalJdk;
+                break;
+            case "proxy":
+                marker = AnnotationProxyUtil.proxy(Fixtures.Marker.class, base, Collections.emptyMap());
+                same = AnnotationProxyUtil.proxy(Fixtures.Marker.class, equalJdk, Collections.emptyMap());
+                break;
+            case "generated":
+                marker = AnnotationProxyUtil.instance(Fixtures.Marker.class, base, Collections.emptyMap());
+                same = AnnotationProxyUtil.instance(Fixtures.Marker.class, equalJdk, Collections.emptyMap());
+                break;
+            default:
+                throw new IllegalArgumentException(kind);
+        }
+        jdk = equalJdk;
+    }
+
+    @Benchmark
+    public int hashCodeValue() {
+        return marker.hashCode();
+    }
+
+    @Benchmark
+    public boolean equalsSameKind() {
+        return marker.equals(same);
+    }
+
+    @Benchmark
+    public boolean equalsJdk() {
+        return marker.equals(jdk);
+    }
+}
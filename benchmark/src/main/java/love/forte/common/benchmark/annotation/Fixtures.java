@@ -0,0 +1,165 @@
+/*
+ * Copyright (c) 2021. ForteScarlet All rights reserved.
+ * Project  parent
+ * File     Fixtures.java
+ *
+ * You can contact the author through the following channels:
+ * github https://github.com/ForteScarlet
+ * gitee  https://gitee.com/ForteScarlet
+ * email  ForteScarlet@163.com
+ * QQ     1149159218
+ */
+
+package love.forte.common.benchmark.annotation;
+
+import love.forte.common.utils.annotation.MixRepeatableAnnotations;
+
+import java.lang.annotation.*;
+
+/**
+ * 基准测试中使用的注解与被注解的元素。
+ * <p>
+ * {@link Marker} 为被查找的注解，{@code LevelN} 通过 {@code N} 层注解继承间接标注 {@link Marker}，
+ * {@code DepthN} 则标注了 {@code LevelN}，因此从 {@code DepthN} 上获取 {@link Marker} 需要经过 {@code N} 层元注解。
+ *
+ * @author ForteScarlet
+ */
+public final class Fixtures {
+
+    private Fixtures() {
+    }
+
+    /**
+     * 按照元注解深度排列的类型，下标 {@code i} 对应深度 {@code i + 1}。
+     */
+    static final Class<?>[] DEPTHS = {Depth1.class, Depth2.class, Depth3.class, Depth4.class, Depth5.class};
+
+    @Retention(RetentionPolicy.RUNTIME)
+    @Target({ElementType.TYPE, ElementType.METHOD, ElementType.ANNOTATION_TYPE})
+    public @interface Marker {
+        String value() default "marker";
+
+        String[] codes() default {"1", "2", "3"};
+
+        int priority() default 0;
+    }
+
+    @Marker
+    @Retention(RetentionPolicy.RUNTIME)
+    @Target({ElementType.TYPE, ElementType.ANNOTATION_TYPE})
+    public @interface Level1 {
+    }
+
+    @Level1
+    @Retention(RetentionPolicy.RUNTIME)
+    @Target({ElementType.TYPE, ElementType.ANNOTATION_TYPE})
+    public @interface Level2 {
+    }
+
+    @Level2
+    @Retention(RetentionPolicy.RUNTIME)
+    @Target({ElementType.TYPE, ElementType.ANNOTATION_TYPE})
+    public @interface Level3 {
+    }
+
+    @Level3
+    @Retention(RetentionPolicy.RUNTIME)
+    @Target({ElementType.TYPE, ElementType.ANNOTATION_TYPE})
+    public @interface Level4 {
+    }
+
+    @Level4
+    @Retention(RetentionPolicy.RUNTIME)
+    @Target({ElementType.TYPE, ElementType.ANNOTATION_TYPE})
+    public @interface Level5 {
+    }
+
+    @Level1
+    public static class Depth1 {
+    }
+
+    @Level2
+    public static class Depth2 {
+    }
+
+    @Level3
+    public static class Depth3 {
+    }
+
+    @Level4
+    public static class Depth4 {
+    }
+
+    @Level5
+    public static class Depth5 {
+    }
+
+
+    @Retention(RetentionPolicy.RUNTIME)
+    @Target({ElementType.METHOD, ElementType.ANNOTATION_TYPE})
+    @Repeatable(Tags.class)
+    public @interface Tag {
+        String value();
+    }
+
+    @Retention(RetentionPolicy.RUNTIME)
+    @Target({ElementType.METHOD, ElementType.ANNOTATION_TYPE})
+    @MixRepeatableAnnotations
+    public @interface Tags {
+        Tag[] value() default {};
+    }
+
+    @Tag("code")
+    @Retention(RetentionPolicy.RUNTIME)
+    @Target(ElementType.METHOD)
+    public @interface CodeTag {
+    }
+
+    /**
+     * 成员上的注解，用于混合可重复注解与并发获取的测试。
+     */
+    public static class Members {
+
+        @Tag("a")
+        @Tag("b")
+        @CodeTag
+        public void mixed() {
+        }
+
+        @Marker("m0")
+        public void m0() {
+        }
+
+        @Marker("m0")
+        public void equalToM0() {
+        }
+
+        @Marker("m1")
+        public void m1() {
+        }
+
+        @Marker("m2")
+        public void m2() {
+        }
+
+        @Marker("m3")
+        public void m3() {
+        }
+
+        @Marker("m4")
+        public void m4() {
+        }
+
+        @Marker("m5")
+        public void m5() {
+        }
+
+        @Marker("m6")
+        public void m6() {
+        }
+
+        @Marker("m7")
+        public void m7() {
+        }
+    }
+}
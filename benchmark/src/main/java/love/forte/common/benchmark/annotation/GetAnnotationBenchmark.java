@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2021. ForteScarlet All rights reserved.
+ * Project  parent
+ * File     GetAnnotationBenchmark.java
+ *
+ * You can contact the author through the following channels:
+ * github https://github.com/ForteScarlet
+ * gitee  https://gitee.com/ForteScarlet
+ * email  ForteScarlet@163.com
+ * QQ     1149159218
+ */
+
+package love.forte.common.benchmark.annotation;
+
+import love.forte.common.utils.annotation.AnnotationUtil;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link AnnotationUtil#getAnnotation(java.lang.reflect.AnnotatedElement, Class)} 在不同元注解深度下的耗时。
+ * <p>
+ * {@code warm} 为缓存命中时的获取；{@code cold} 在每次获取之前通过 {@link AnnotationUtil#cleanCache()} 清除缓存，
+ * 因此包含了注解索引的构建；{@code negative} 为获取一个不存在的注解。
+ *
+ * @author ForteScarlet
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+@State(Scope.Benchmark)
+public class GetAnnotationBenchmark {
+
+    @Param({"1", "2", "3", "4", "5"})
+    public int depth;
+
+    private Class<?> target;
+
+    @Setup
+    public void setup() {
+        target = Fixtures.DEPTHS[depth - 1];
+        AnnotationUtil.cleanCache();
+        AnnotationUtil.getAnnotation(target, Fixtures.Marker.class);
+    }
+
+    @Benchmark
+    public Fixtures.Marker warm() {
+        return AnnotationUtil.getAnnotation(target, Fixtures.Marker.class);
+    }
+
+    @Benchmark
+    public Fixtures.Marker cold() {
+        AnnotationUtil.cleanCache();
+        return AnnotationUtil.getAnnotation(target, Fixtures.Marker.class);
+    }
+
+    @Benchmark
+    public Deprecated negative() {
+        return AnnotationUtil.getAnnotation(target, Deprecated.class);
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright (c) 2021. ForteScarlet All rights reserved.
+ * Project  parent
+ * File     MixRepeatableBenchmark.java
+ *
+ * You can contact the author through the following channels:
+ * github https://github.com/ForteScarlet
+ * gitee  https://gitee.com/ForteScarlet
+ * email  ForteScarlet@163.com
+ * QQ     1149159218
+ */
+
+package love.forte.common.benchmark.annotation;
+
+import love.forte.common.utils.annotation.AnnotationUtil;
+import love.forte.common.utils.annotation.MixRepeatableAnnotations;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 获取标记了 {@link MixRepeatableAnnotations} 的可重复注解容器，其中需要合并直接标注的与通过注解继承得到的可重复注解。
+ *
+ * @author ForteScarlet
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+@State(Scope.Benchmark)
+public class MixRepeatableBenchmark {
+
+    private Method mixed;
+
+    @Setup
+    public void setup() throws NoSuchMethodException {
+        mixed = Fixtures.Members.class.getMethod("mixed");
+        AnnotationUtil.cleanCache();
+        AnnotationUtil.getAnnotation(mixed, Fixtures.Tags.class);
+    }
+
+    @Benchmark
+    public Fixtures.Tags warm() {
+        return AnnotationUtil.getAnnotation(mixed, Fixtures.Tags.class);
+    }
+
+    @Benchmark
+    public Fixtures.Tags cold() {
+        AnnotationUtil.cleanCache();
+        return AnnotationUtil.getAnnotation(mixed, Fixtures.Tags.class);
+    }
+
+    @Benchmark
+    public int children() {
+        return AnnotationUtil.getAnnotation(mixed, Fixtures.Tags.class).value().length;
+    }
+}
@@ -29,6 +29,7 @@ import love.forte.common.ioc.lifecycle.BeanDependRegistry
 import love.forte.common.ioc.lifecycle.CloseProcesses
 import love.forte.common.utils.FieldUtil
 import love.forte.common.utils.annotation.AnnotationUtil
+import love.forte.common.utils.annotation.ResolvedAnnotations
 import love.forte.common.utils.convert.ConverterManager
 import java.io.Closeable
 import java.lang.reflect.*
@@ -227,9 +228,12 @@ constructor(
             return
         }
 
+        // 一次性解析所需的注解
+        val resolved: ResolvedAnnotations = AnnotationUtil.getAnnotations(type, Beans::class.java, AsConfig::class.java)
+
         // 得到beans注解
         val beansAnnotation: Beans =
-            AnnotationUtil.getAnnotation(type, Beans::class.java) ?: defaultAnnotation ?: throw NotBeansException(
+            resolved.get(Beans::class.java) ?: defaultAnnotation ?: throw NotBeansException(
                 type.toGenericString()
             )
 
@@ -246,7 +250,7 @@ constructor(
             .needInit(beansAnnotation.init)
             .priority(beansAnnotation.priority)
 
-        val asConfig: Boolean = AnnotationUtil.containsAnnotation(type, AsConfig::class.java)
+        val asConfig: Boolean = resolved.contains(AsConfig::class.java)
         // 是否可以作为配置类
         builder.asConfig(asConfig)
 
@@ -301,7 +305,7 @@ constructor(
         val beanDepend: BeanDepend<T> = builder.build()
         register(beanDepend)
 
-        injectChildren(beanDepend, defaultBeansAnnotation).forEach {
+        injectChildren(beanDepend).forEach {
             register(it)
         }
 
@@ -312,12 +316,12 @@ constructor(
     /**
      * 父类型下所有的子方法注入
      */
-    private fun injectChildren(parent: BeanDepend<*>, defaultAnnotations: Beans): Sequence<BeanDepend<*>> {
+    private fun injectChildren(parent: BeanDepend<*>): Sequence<BeanDepend<*>> {
         // find children
         return parent.type.methods.asSequence()
+            .mapNotNull { method -> AnnotationUtil.getAnnotation(method, Beans::class.java)?.let { method to it } }
             // 只允许存在@Beans的方法
-            .filter { AnnotationUtil.containsAnnotation(it, Beans::class.java) }
-            .map {
+            .map { (it, beansAnnotation) ->
                 val modifiers: Int = it.modifiers
                 // 如果是static, 或者不是public方法
                 if (Modifier.isStatic(modifiers)) {
@@ -326,9 +330,8 @@ constructor(
                 if (!Modifier.isPublic(modifiers)) {
                     throw IllegalTypeException("${Beans::class} cannot be annotated in no-public method.")
                 }
-                it
-            }.map {
-                val beansAnnotation: Beans = AnnotationUtil.getAnnotation(it, Beans::class.java) ?: defaultAnnotations
+                it to beansAnnotation
+            }.map { (it, beansAnnotation) ->
                 // builder
                 val builder = BeanDependBuilder<Any>()
 
@@ -609,13 +612,17 @@ constructor(
      * 寻找其中全部标注了[Depend]的字段
      */
     private fun <T> instanceInjectFunc(beans: Beans, type: Class<out T>): (T, DependBeanFactory) -> T {
+        // 每个字段的注解仅解析一次
+        val resolvedAnnotations: MutableMap<Field, ResolvedAnnotations> = HashMap()
         val depends: MutableList<Field> = FieldUtil.getDeclaredFields(type, {
+            val resolved: ResolvedAnnotations = AnnotationUtil.getAnnotations(it, Ignore::class.java, Depend::class.java)
+            resolvedAnnotations[it] = resolved
             if (beans.allDepend) {
                 // 全部都注入, 则忽略部分需要忽略的
-                !AnnotationUtil.containsAnnotation(it, Ignore::class.java)
+                !resolved.contains(Ignore::class.java)
             } else {
                 // 否则, 注入需要注入的
-                AnnotationUtil.containsAnnotation(it, Depend::class.java)
+                resolved.contains(Depend::class.java)
             }.apply {
                 if (this) {
                     // 字段不可以是静态的、不可以是final的
@@ -642,7 +649,7 @@ constructor(
                 it.isAccessible = true
 
                 // do inject if can
-                val dependAnnotation: Depend = AnnotationUtil.getAnnotation(it, Depend::class.java) ?: beans.depend
+                val dependAnnotation: Depend = resolvedAnnotations[it]?.get(Depend::class.java) ?: beans.depend
 
                 val orIgnore: Boolean = dependAnnotation.orIgnore
 
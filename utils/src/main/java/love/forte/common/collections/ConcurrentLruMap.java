@@ -0,0 +1,433 @@
+package love.forte.common.collections;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * 线程安全的有界 {@code LRU} 缓存 Map。
+ * <p>
+ * 由测试中的 {@code PiecedConcurrentLruMap} 原型演化而来，但不再对分段加锁：
+ * 数据存储于 {@link ConcurrentHashMap} 中，读操作 <b>无锁</b>，仅会为命中的节点打上一个“最近访问”标记；
+ * 淘汰采用近似 {@code LRU} 的 {@code CLOCK (second chance)} 策略：
+ * 写入后如果超出容量，由 <b>一个</b> 写线程通过 {@link ReentrantLock#tryLock()} 获得淘汰权，
+ * 沿插入顺序队列淘汰最近未被访问过的节点，其他线程不会因此阻塞，淘汰成本被均摊到写操作上。
+ * <p>
+ * key 与 value 均不可为null。
+ *
+ * @author ForteScarlet
+ */
+public class ConcurrentLruMap<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V> {
+
+    /**
+     * 真正的数据存储。
+     */
+    private final ConcurrentHashMap<K, Node<K, V>> map;
+
+    /**
+     * 按照插入顺序记录的节点队列，用于 {@code CLOCK} 淘汰。
+     * 其中可能存在已经被移除的节点，它们会在淘汰时被顺便清理。
+     */
+    private final ConcurrentLinkedQueue<Node<K, V>> queue = new ConcurrentLinkedQueue<>();
+
+    /**
+     * {@link #queue} 中的节点数量。
+     */
+    private final AtomicInteger queued = new AtomicInteger();
+
+    /**
+     * 淘汰锁。同一时间仅有一个线程进行淘汰。
+     */
+    private final ReentrantLock evictionLock = new ReentrantLock();
+
+    /**
+     * 最大容量上限。
+     */
+    private volatile int capacity;
+
+    /**
+     * 淘汰监听。仅在元素因超出容量而被淘汰时触发，主动的移除不会触发。
+     */
+    private volatile BiConsumer<? super K, ? super V> evictionListener;
+
+
+    public ConcurrentLruMap(int capacity) {
+        this(capacity, 16);
+    }
+
+    public ConcurrentLruMap(int capacity, int initialCapacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive, but " + capacity);
+        }
+        this.capacity = capacity;
+        this.map = new ConcurrentHashMap<>(Math.min(initialCapacity, capacity));
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * 重置最大容量上限。如果当前数量已经超出新的上限，多余的元素会在下一次写入的时候被淘汰。
+     */
+    public void setCapacity(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive, but " + capacity);
+        }
+        this.capacity = capacity;
+    }
+
+
+    /**
+     * 设置淘汰监听。监听函数会在淘汰线程中同步执行，应当尽可能的轻量。
+     *
+     * @param evictionListener 淘汰监听，参数为被淘汰的key与value。可以为null。
+     */
+    public void setEvictionListener(BiConsumer<? super K, ? super V> evictionListener) {
+        this.evictionListener = evictionListener;
+    }
+
+
+    @Override
+    public V get(Object key) {
+        final Node<K, V> node = map.get(key);
+        if (node == null) {
+            return null;
+        }
+        node.markReferenced();
+        return node.value;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return map.containsKey(key);
+    }
+
+    @Override
+    public int size() {
+        return map.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return map.isEmpty();
+    }
+
+    @Override
+    public V put(@NotNull K key, @NotNull V value) {
+        return putVal(key, value, false);
+    }
+
+    @Override
+    public V putIfAbsent(@NotNull K key, @NotNull V value) {
+        return putVal(key, value, true);
+    }
+
+    /**
+     * 如果不存在则计算并存入。
+     * <p>
+     * 与 {@link ConcurrentHashMap#computeIfAbsent(Object, Function)} 不同，
+     * {@code mappingFunction} 在 <b>锁外</b> 执行，因此允许在其中递归的访问此Map，
+     * 但在并发情况下它可能会被执行多次，最终仅会保留最先存入的那个值。
+     */
+    @Override
+    public V computeIfAbsent(K key, @NotNull Function<? super K, ? extends V> mappingFunction) {
+        V value = get(key);
+        if (value != null) {
+            return value;
+        }
+        final V newValue = mappingFunction.apply(key);
+        if (newValue == null) {
+            return null;
+        }
+        final V old = putIfAbsent(key, newValue);
+        return old == null ? newValue : old;
+    }
+
+    @Override
+    public V remove(Object key) {
+        final Node<K, V> node = map.remove(key);
+        if (node == null) {
+            return null;
+        }
+        return node.retire();
+    }
+
+    @Override
+    public boolean remove(@NotNull Object key, Object value) {
+        final Node<K, V> node = map.get(key);
+        if (node == null || value == null) {
+            return false;
+        }
+        synchronized (node) {
+            if (!node.alive || !value.equals(node.value) || !map.remove(key, node)) {
+                return false;
+            }
+            node.alive = false;
+        }
+        return true;
+    }
+
+    @Override
+    public boolean replace(@NotNull K key, @NotNull V oldValue, @NotNull V newValue) {
+        Objects.requireNonNull(newValue);
+        final Node<K, V> node = map.get(key);
+        if (node == null) {
+            return false;
+        }
+        synchronized (node) {
+            if (!node.alive || !oldValue.equals(node.value)) {
+                return false;
+            }
+            node.value = newValue;
+            node.referenced = true;
+        }
+        return true;
+    }
+
+    @Override
+    public V replace(@NotNull K key, @NotNull V value) {
+        Objects.requireNonNull(value);
+        final Node<K, V> node = map.get(key);
+        if (node == null) {
+            return null;
+        }
+        synchronized (node) {
+            if (!node.alive) {
+                return null;
+            }
+            final V old = node.value;
+            node.value = value;
+            node.referenced = true;
+            return old;
+        }
+    }
+
+    @Override
+    public void clear() {
+        evictionLock.lock();
+        try {
+            for (Node<K, V> node : map.values()) {
+                if (map.remove(node.key, node)) {
+                    node.retire();
+                }
+            }
+            queue.removeIf(node -> {
+                if (!node.alive) {
+                    queued.decrementAndGet();
+                    return true;
+                }
+                return false;
+            });
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+
+    /**
+     * 存入值。
+     *
+     * @param onlyIfAbsent 是否仅在不存在的时候存入。
+     * @return 旧的值或null。
+     */
+    private V putVal(K key, V value, boolean onlyIfAbsent) {
+        Objects.requireNonNull(key);
+        Objects.requireNonNull(value);
+        final Node<K, V> newNode = new Node<>(key, value);
+        for (; ; ) {
+            final Node<K, V> prev = map.putIfAbsent(key, newNode);
+            if (prev == null) {
+                queue.offer(newNode);
+                queued.incrementAndGet();
+                afterInsert();
+                return null;
+            }
+            if (onlyIfAbsent) {
+                prev.markReferenced();
+                return prev.value;
+            }
+            synchronized (prev) {
+                if (prev.alive) {
+                    final V old = prev.value;
+                    prev.value = value;
+                    prev.referenced = true;
+                    return old;
+                }
+            }
+            // prev 已经被并发移除，重试。
+        }
+    }
+
+
+    /**
+     * 插入新节点后，检查是否需要淘汰。
+     * 当元素数量超出上限，或者队列中堆积了过多已被移除的节点时进行一次淘汰。
+     * 如果其他线程正在淘汰，则直接返回；持有锁的线程在释放锁之后会再次检查，
+     * 以免遗漏在其淘汰期间由其他线程插入的节点。
+     */
+    private void afterInsert() {
+        while (needsEviction()) {
+            if (!evictionLock.tryLock()) {
+                return;
+            }
+            final boolean progressed;
+            try {
+                progressed = evict();
+            } finally {
+                evictionLock.unlock();
+            }
+            if (!progressed) {
+                return;
+            }
+        }
+    }
+
+
+    private boolean needsEviction() {
+        final int cap = capacity;
+        return map.size() > cap || queued.get() > (cap << 1);
+    }
+
+
+    /**
+     * 通过 {@code CLOCK} 策略进行淘汰。
+     * 被访问过的节点会清除标记并重新入队（第二次机会），未被访问过的节点将被移除。
+     * 元素数量未超出上限时仅清理队列中已被移除的节点，存活的节点均放回队尾。
+     * 需要持有 {@link #evictionLock}。
+     *
+     * @return 是否移除了任何节点。队列已空，或者一轮扫描下来只清除了访问标记时得到false。
+     */
+    private boolean evict() {
+        final int cap = capacity;
+        // 最多扫描两轮，防止在高并发访问下无限循环。
+        int budget = queued.get() << 1;
+        boolean progressed = false;
+        Node<K, V> node;
+        while (budget-- > 0 && (map.size() > cap || queued.get() > (cap << 1))) {
+            if ((node = queue.poll()) == null) {
+                return progressed;
+            }
+            if (!node.alive) {
+                queued.decrementAndGet();
+                progressed = true;
+                continue;
+            }
+            if (map.size() <= cap) {
+                // 仅需要清理被移除的节点，存活的节点放回队尾。
+                queue.offer(node);
+                continue;
+            }
+            if (node.referenced) {
+                node.referenced = false;
+                queue.offer(node);
+                continue;
+            }
+            queued.decrementAndGet();
+            progressed = true;
+            if (map.remove(node.key, node)) {
+                final V value = node.retire();
+                final BiConsumer<? super K, ? super V> listener = evictionListener;
+                if (listener != null) {
+                    listener.accept(node.key, value);
+                }
+            }
+        }
+        return progressed;
+    }
+
+
+    @NotNull
+    @Override
+    public Set<Entry<K, V>> entrySet() {
+        return new EntrySet();
+    }
+
+
+    /**
+     * 存储节点。
+     */
+    private static final class Node<K, V> {
+        private final K key;
+        private volatile V value;
+        /**
+         * 最近是否被访问过。
+         */
+        private volatile boolean referenced;
+        /**
+         * 是否仍存在于Map中。
+         */
+        private volatile boolean alive = true;
+
+        private Node(K key, V value) {
+            this.key = key;
+            this.value = value;
+        }
+
+        /**
+         * 标记为最近访问。已经标记过的不会再次写入，以减少读操作时的缓存行竞争。
+         */
+        private void markReferenced() {
+            if (!referenced) {
+                referenced = true;
+            }
+        }
+
+        /**
+         * 标记为已移除，并返回其最后的值。
+         */
+        private synchronized V retire() {
+            alive = false;
+            return value;
+        }
+    }
+
+
+    private final class EntrySet extends AbstractSet<Entry<K, V>> {
+        @Override
+        public Iterator<Entry<K, V>> iterator() {
+            final Iterator<Node<K, V>> iterator = map.values().iterator();
+            return new Iterator<Entry<K, V>>() {
+                private Node<K, V> last;
+
+                @Override
+                public boolean hasNext() {
+                    return iterator.hasNext();
+                }
+
+                @Override
+                public Entry<K, V> next() {
+                    last = iterator.next();
+                    return new SimpleImmutableEntry<>(last.key, last.value);
+                }
+
+                @Override
+                public void remove() {
+                    if (last == null) {
+                        throw new IllegalStateException();
+                    }
+                    ConcurrentLruMap.this.remove(last.key, last.value);
+                    last = null;
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return map.size();
+        }
+
+        @Override
+        public void clear() {
+            ConcurrentLruMap.this.clear();
+        }
+    }
+
+}
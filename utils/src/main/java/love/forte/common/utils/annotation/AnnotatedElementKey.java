@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2021. ForteScarlet All rights reserved.
+ * Project  parent
+ * File     AnnotatedElementKey.java
+ *
+ * You can contact the author through the following channels:
+ * github https://github.com/ForteScarlet
+ * gitee  https://gitee.com/ForteScarlet
+ * email  ForteScarlet@163.com
+ * QQ     1149159218
+ */
+
+package love.forte.common.utils.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.reflect.AnnotatedElement;
+
+/**
+ * 一个类型或其成员的规范标识。
+ * <p>
+ * 反射得到的 {@link java.lang.reflect.Method}、{@link java.lang.reflect.Field} 等对象每次获取都是新的实例，
+ * 而对于同一个成员，无论通过哪个实例获取，得到的标识都是同一个对象，因此可以直接通过 {@code ==} 进行比较，
+ * 或者作为 {@link java.util.IdentityHashMap} 的key使用。
+ * <p>
+ * 标识由 (所属类型, 序号) 构成，序号在所属类型中唯一，并在类型第一次被使用的时候确定。
+ *
+ * @author ForteScarlet
+ * @see AnnotationUtil#getElementKey(AnnotatedElement)
+ */
+public final class AnnotatedElementKey {
+
+    private final Class<?> declaringClass;
+    private final ElementType elementType;
+    private final String name;
+    private final int ordinal;
+
+    AnnotatedElementKey(Class<?> declaringClass, ElementType elementType, String name, int ordinal) {
+        this.declaringClass = declaringClass;
+        this.elementType = elementType;
+        this.name = name;
+        this.ordinal = ordinal;
+    }
+
+    /**
+     * 所属类型。如果为类型本身的标识，则为此类型。
+     */
+    public Class<?> getDeclaringClass() {
+        return declaringClass;
+    }
+
+    /**
+     * 元素的种类，为 {@link ElementType#TYPE}、{@link ElementType#METHOD}、{@link ElementType#FIELD}、
+     * {@link ElementType#CONSTRUCTOR}、{@link ElementType#PARAMETER} 之一。
+     */
+    public ElementType getElementType() {
+        return elementType;
+    }
+
+    /**
+     * 在所属类型中的序号。
+     */
+    public int getOrdinal() {
+        return ordinal;
+    }
+
+    @Override
+    public String toString() {
+        return declaringClass.getName() + "#" + name + "(" + elementType + ", " + ordinal + ")";
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2021. ForteScarlet All rights reserved.
+ * Project  parent
+ * File     AnnotationCacheCounters.java
+ *
+ * You can contact the author through the following channels:
+ * github https://github.com/ForteScarlet
+ * gitee  https://gitee.com/ForteScarlet
+ * email  ForteScarlet@163.com
+ * QQ     1149159218
+ */
+
+package love.forte.common.utils.annotation;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * {@link AnnotationUtil} 中注解缓存的统计计数。
+ * <p>
+ * 统计默认关闭，关闭时每次记录仅有一次 {@code volatile} 读取的开销。
+ *
+ * @author ForteScarlet
+ */
+final class AnnotationCacheCounters {
+
+    private volatile boolean enabled;
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder negativeHits = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder missTime = new LongAdder();
+
+    /**
+     * 当前线程中记录的未命中次数，用于判断一次获取中是否构建了索引。
+     */
+    private static final ThreadLocal<int[]> LOCAL_MISSES = ThreadLocal.withInitial(() -> new int[1]);
+
+    boolean isEnabled() {
+        return enabled;
+    }
+
+    void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    void recordRequest() {
+        if (enabled) {
+            requests.increment();
+        }
+    }
+
+    /**
+     * 记录一次缓存未命中与其解析所用的时间。
+     */
+    void recordMiss(long nanos) {
+        if (enabled) {
+            misses.increment();
+            missTime.add(nanos);
+            LOCAL_MISSES.get()[0]++;
+        }
+    }
+
+    /**
+     * 当前线程中记录的未命中次数。统计关闭时为0。
+     * 在一次获取之前得到，并在获取之后交给 {@link #recordNegativeHit(int)}。
+     */
+    int localMisses() {
+        return enabled ? LOCAL_MISSES.get()[0] : 0;
+    }
+
+    /**
+     * 记录一次否定命中。如果在此次获取的过程中当前线程构建了索引，则此次获取并不是通过缓存得知的结果，不进行记录。
+     *
+     * @param localMisses 获取之前的 {@link #localMisses()}
+     */
+    void recordNegativeHit(int localMisses) {
+        if (enabled && LOCAL_MISSES.get()[0] == localMisses) {
+            negativeHits.increment();
+        }
+    }
+
+    void recordEviction() {
+        if (enabled) {
+            evictions.increment();
+        }
+    }
+
+    void reset() {
+        requests.reset();
+        misses.reset();
+        negativeHits.reset();
+        evictions.reset();
+        missTime.reset();
+    }
+
+    AnnotationCacheStats snapshot(long classIndexCount, int fallbackSize, int fallbackCapacity) {
+        final long requestCount = requests.sum();
+        final long missCount = misses.sum();
+        return new AnnotationCacheStats(
+                // 并发构建时未命中数可能会略多于请求数
+                Math.max(0, requestCount - missCount),
+                missCount,
+                negativeHits.sum(),
+                evictions.sum(),
+                missTime.sum(),
+                classIndexCount,
+                fallbackSize,
+                fallbackCapacity
+        );
+    }
+}
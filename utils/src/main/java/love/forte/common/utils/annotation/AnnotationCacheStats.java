@@ -0,0 +1,141 @@
+/*
+ * Copyright (c) 2021. ForteScarlet All rights reserved.
+ * Project  parent
+ * File     AnnotationCacheStats.java
+ *
+ * You can contact the author through the following channels:
+ * github https://github.com/ForteScarlet
+ * gitee  https://gitee.com/ForteScarlet
+ * email  ForteScarlet@163.com
+ * QQ     1149159218
+ */
+
+package love.forte.common.utils.annotation;
+
+/**
+ * 注解缓存统计信息的快照，不可变。
+ * <p>
+ * 仅在通过 {@link AnnotationUtil#setStatisticsEnabled(boolean)} 开启统计后才会进行记录。
+ * 其中：
+ * <ul>
+ *     <li>命中与未命中针对的是元素的注解索引的获取，未命中时会完整的解析一次元素上的注解。</li>
+ *     <li>否定命中为通过缓存得知某个注解 <b>不存在</b> 的次数。</li>
+ *     <li>命中、未命中与否定命中覆盖所有元素。</li>
+ *     <li>类型以及类型中的字段、方法、构造、参数的注解索引依附于类型保存，不受容量限制也不会被淘汰，会随着类加载器一同被回收。
+ *     其数量为 {@link #getClassIndexCount()}，在 {@link AnnotationUtil#cleanCache()} 时归零，但不会因为类型被回收而减少。</li>
+ *     <li>其他的元素（例如 {@link Package}）保存在有容量上限的后备缓存中，
+ *     淘汰次数、{@link #getFallbackSize()} 与 {@link #getFallbackCapacity()} <b>仅</b> 针对此缓存。</li>
+ *     <li>{@link #getSize()} 为以上两者的数量之和。</li>
+ * </ul>
+ *
+ * @author ForteScarlet
+ * @see AnnotationUtil#getCacheStats()
+ */
+public final class AnnotationCacheStats {
+
+    private final long hitCount;
+    private final long missCount;
+    private final long negativeHitCount;
+    private final long evictionCount;
+    private final long totalMissTime;
+    private final long classIndexCount;
+    private final int fallbackSize;
+    private final int fallbackCapacity;
+
+    AnnotationCacheStats(long hitCount, long missCount, long negativeHitCount, long evictionCount,
+                         long totalMissTime, long classIndexCount, int fallbackSize, int fallbackCapacity) {
+        this.hitCount = hitCount;
+        this.missCount = missCount;
+        this.negativeHitCount = negativeHitCount;
+        this.evictionCount = evictionCount;
+        this.totalMissTime = totalMissTime;
+        this.classIndexCount = classIndexCount;
+        this.fallbackSize = fallbackSize;
+        this.fallbackCapacity = fallbackCapacity;
+    }
+
+    public long getRequestCount() {
+        return hitCount + missCount;
+    }
+
+    public long getHitCount() {
+        return hitCount;
+    }
+
+    public long getMissCount() {
+        return missCount;
+    }
+
+    public long getNegativeHitCount() {
+        return negativeHitCount;
+    }
+
+    /**
+     * 后备缓存的淘汰次数。
+     */
+    public long getEvictionCount() {
+        return evictionCount;
+    }
+
+    /**
+     * 命中率。没有任何请求时为 {@code 1.0}。
+     */
+    public double getHitRate() {
+        final long requestCount = getRequestCount();
+        return requestCount == 0 ? 1.0 : (double) hitCount / requestCount;
+    }
+
+    /**
+     * 未命中时解析所用的总时间，单位为纳秒。
+     */
+    public long getTotalMissTime() {
+        return totalMissTime;
+    }
+
+    /**
+     * 未命中时解析所用的平均时间，单位为纳秒。
+     */
+    public double getAverageMissTime() {
+        return missCount == 0 ? 0.0 : (double) totalMissTime / missCount;
+    }
+
+    /**
+     * 当前缓存的注解索引数量，为 {@link #getClassIndexCount()} 与 {@link #getFallbackSize()} 之和。
+     */
+    public long getSize() {
+        return classIndexCount + fallbackSize;
+    }
+
+    /**
+     * 依附于类型保存的注解索引数量，包括类型自身与其成员的索引。
+     */
+    public long getClassIndexCount() {
+        return classIndexCount;
+    }
+
+    /**
+     * 有容量上限的后备缓存中的当前数量。
+     */
+    public int getFallbackSize() {
+        return fallbackSize;
+    }
+
+    /**
+     * 有容量上限的后备缓存的容量。
+     */
+    public int getFallbackCapacity() {
+        return fallbackCapacity;
+    }
+
+    @Override
+    public String toString() {
+        return "AnnotationCacheStats(hitCount=" + hitCount +
+                ", missCount=" + missCount +
+                ", negativeHitCount=" + negativeHitCount +
+                ", evictionCount=" + evictionCount +
+                ", averageMissTime=" + getAverageMissTime() +
+                ", classIndexCount=" + classIndexCount +
+                ", fallbackSize=" + fallbackSize +
+                ", fallbackCapacity=" + fallbackCapacity + ")";
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright (c) 2021. ForteScarlet All rights reserved.
+ * Project  parent
+ * File     AnnotationCacheStatsMXBean.java
+ *
+ * You can contact the author through the following channels:
+ * github https://github.com/ForteScarlet
+ * gitee  https://gitee.com/ForteScarlet
+ * email  ForteScarlet@163.com
+ * QQ     1149159218
+ */
+
+package love.forte.common.utils.annotation;
+
+/**
+ * 注解缓存统计的JMX接口。
+ * <p>
+ * 其中 {@code Size} 为 {@code ClassIndexCount} 与 {@code FallbackSize} 之和，
+ * {@code EvictionCount}、{@code FallbackSize} 与 {@code FallbackCapacity} 仅针对有容量上限的后备缓存，参考 {@link AnnotationCacheStats}。
+ * 后备缓存的容量只能通过 {@link AnnotationUtil#setAnnotationCacheCapacity(int)} 修改。
+ *
+ * @author ForteScarlet
+ * @see AnnotationUtil#registerCacheStatsMBean()
+ * @see AnnotationCacheStats
+ */
+public interface AnnotationCacheStatsMXBean {
+
+    boolean isEnabled();
+
+    void setEnabled(boolean enabled);
+
+    long getRequestCount();
+
+    long getHitCount();
+
+    long getMissCount();
+
+    long getNegativeHitCount();
+
+    long getEvictionCount();
+
+    double getHitRate();
+
+    double getAverageMissTime();
+
+    long getSize();
+
+    long getClassIndexCount();
+
+    int getFallbackSize();
+
+    int getFallbackCapacity();
+
+    void reset();
+
+}
@@ -0,0 +1,484 @@
+package love.forte.common.utils.annotation;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 注解实现类生成器。
+ * <p>
+ * 为每个注解类型在运行时生成一个继承 {@link GeneratedAnnotation} 并实现此注解接口的 {@code final} 类，
+ * 每个成员值保存在一个 {@code final} 字段中，成员方法直接返回字段值（数组则返回其副本）。
+ * 与 {@link java.lang.reflect.Proxy} 相比，成员的读取不再需要经过 {@link java.lang.reflect.InvocationHandler}。
+ * <p>
+ * 由于需要兼容 {@code JDK1.8}，无法使用 {@code Lookup.defineHiddenClass}，
+ * 生成的类会定义在一个以注解类型的类加载器为父加载器的独立类加载器中，并随注解类型一同被回收。
+ * <p>
+ * 生成的类与注解类型不在同一个运行时包中，因此注解类型及其所有成员的类型都必须是 {@code public} 的，
+ * 否则（或者生成失败时）无法生成，应当使用 {@link java.lang.reflect.Proxy} 作为替代。
+ *
+ * @author ForteScarlet
+ */
+final class AnnotationClassGenerator {
+
+    private static final String GENERATED_PACKAGE = "love.forte.common.utils.annotation.generated.";
+
+    private static final String SUPER_NAME = internalName(GeneratedAnnotation.class);
+
+    private static final String SUPER_CONSTRUCTOR_DESC = "(Ljava/lang/Class;[Ljava/lang/Object;ILjava/lang/String;)V";
+
+    private static final MethodType CONSTRUCTOR_TYPE = MethodType.methodType(void.class, Class.class, Object[].class, int.class, String.class);
+
+    private static final MethodType FACTORY_TYPE = MethodType.methodType(Annotation.class, Class.class, Object[].class, int.class, String.class);
+
+    /**
+     * 不支持生成的注解类型所对应的值。
+     */
+    private static final MethodHandle UNSUPPORTED = MethodHandles.constant(Annotation.class, null);
+
+    private static final ClassValue<MethodHandle> CONSTRUCTORS = new ClassValue<MethodHandle>() {
+        @Override
+        protected MethodHandle computeValue(Class<?> type) {
+            //noinspection unchecked
+            final AnnotationLayout layout = AnnotationLayout.of((Class<? extends Annotation>) type);
+            if (!isSupported(layout)) {
+                return UNSUPPORTED;
+            }
+            try {
+                final Class<?> generated = generate(layout);
+                return MethodHandles.publicLookup().findConstructor(generated, CONSTRUCTOR_TYPE).asType(FACTORY_TYPE);
+            } catch (Throwable e) {
+                // 生成或链接失败，例如注解类型位于未开放的模块中。
+                return UNSUPPORTED;
+            }
+        }
+    };
+
+    private AnnotationClassGenerator() {
+    }
+
+
+    /**
+     * 构建一个生成类的注解实例。
+     *
+     * @param layout 注解结构
+     * @param values 所有成员值，顺序与 {@code layout} 一致，且均不可为null
+     * @return 注解实例。如果此注解类型不支持生成，或者值的类型与成员不符，得到null。
+     */
+    static Annotation newInstance(AnnotationLayout layout, Object[] values) {
+        final MethodHandle constructor = CONSTRUCTORS.get(layout.getType());
+        if (constructor == UNSUPPORTED) {
+            return null;
+        }
+        final Method[] members = layout.getMembers();
+        for (int i = 0; i < members.length; i++) {
+            if (!isInstance(members[i].getReturnType(), values[i])) {
+                return null;
+            }
+        }
+        final int hash = AnnotationMembers.hashCode(layout.getNames(), values);
+        final String string = AnnotationMembers.toString(layout.getType(), layout.getNames(), values);
+        try {
+            return (Annotation) constructor.invokeExact(layout.getType(), values, hash, string);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException("Cannot create annotation instance of " + layout.getType(), e);
+        }
+    }
+
+
+    private static boolean isSupported(AnnotationLayout layout) {
+        if (!Modifier.isPublic(layout.getType().getModifiers())) {
+            return false;
+        }
+        for (Method member : layout.getMembers()) {
+            Class<?> returnType = member.getReturnType();
+            if (returnType.isArray()) {
+                returnType = returnType.getComponentType();
+            }
+            if (!returnType.isPrimitive() && !Modifier.isPublic(returnType.getModifiers())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+
+    private static boolean isInstance(Class<?> type, Object value) {
+        if (value == null) {
+            return false;
+        }
+        if (type.isPrimitive()) {
+            return PRIMITIVES.get(type).boxType == value.getClass();
+        }
+        return type.isInstance(value);
+    }
+
+
+    /**
+     * 生成并定义实现类。
+     */
+    private static Class<?> generate(AnnotationLayout layout) {
+        final Class<? extends Annotation> type = layout.getType();
+        final String name = GENERATED_PACKAGE + type.getName().replace('.', '_') + "$Impl";
+        final byte[] bytes = new ClassFileWriter(internalName(name), layout).toByteArray();
+        final ClassLoader parent = type.getClassLoader();
+        return new GeneratedClassLoader(parent).define(name, bytes);
+    }
+
+
+    /**
+     * 用于定义生成类的类加载器。
+     * 生成类需要同时可见注解类型（通过父加载器）与 {@link GeneratedAnnotation}（通过此类的加载器）。
+     */
+    private static final class GeneratedClassLoader extends ClassLoader {
+        static {
+            ClassLoader.registerAsParallelCapable();
+        }
+
+        private GeneratedClassLoader(ClassLoader parent) {
+            super(parent);
+        }
+
+        @Override
+        protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+            if (GeneratedAnnotation.class.getName().equals(name)) {
+                return GeneratedAnnotation.class;
+            }
+            return super.loadClass(name, resolve);
+        }
+
+        private Class<?> define(String name, byte[] bytes) {
+            return defineClass(name, bytes, 0, bytes.length);
+        }
+    }
+
+
+    ///////////// class file /////////////
+
+    private static final class Primitive {
+        private final String box;
+        private final Class<?> boxType;
+        private final String unboxName;
+        private final int returnOpcode;
+
+        private Primitive(Class<?> boxType, String unboxName, int returnOpcode) {
+            this.box = internalName(boxType);
+            this.boxType = boxType;
+            this.unboxName = unboxName;
+            this.returnOpcode = returnOpcode;
+        }
+    }
+
+    private static final Map<Class<?>, Primitive> PRIMITIVES = new HashMap<>(16);
+
+    private static final int IRETURN = 0xAC, LRETURN = 0xAD, FRETURN = 0xAE, DRETURN = 0xAF, ARETURN = 0xB0;
+
+    static {
+        PRIMITIVES.put(boolean.class, new Primitive(Boolean.class, "booleanValue", IRETURN));
+        PRIMITIVES.put(byte.class, new Primitive(Byte.class, "byteValue", IRETURN));
+        PRIMITIVES.put(char.class, new Primitive(Character.class, "charValue", IRETURN));
+        PRIMITIVES.put(short.class, new Primitive(Short.class, "shortValue", IRETURN));
+        PRIMITIVES.put(int.class, new Primitive(Integer.class, "intValue", IRETURN));
+        PRIMITIVES.put(long.class, new Primitive(Long.class, "longValue", LRETURN));
+        PRIMITIVES.put(float.class, new Primitive(Float.class, "floatValue", FRETURN));
+        PRIMITIVES.put(double.class, new Primitive(Double.class, "doubleValue", DRETURN));
+    }
+
+
+    private static String internalName(Class<?> type) {
+        return internalName(type.getName());
+    }
+
+    private static String internalName(String name) {
+        return name.replace('.', '/');
+    }
+
+    private static String descriptor(Class<?> type) {
+        if (type.isPrimitive()) {
+            if (type == boolean.class) {
+                return "Z";
+            } else if (type == byte.class) {
+                return "B";
+            } else if (type == char.class) {
+                return "C";
+            } else if (type == short.class) {
+                return "S";
+            } else if (type == int.class) {
+                return "I";
+            } else if (type == long.class) {
+                return "J";
+            } else if (type == float.class) {
+                return "F";
+            } else if (type == double.class) {
+                return "D";
+            }
+            return "V";
+        }
+        if (type.isArray()) {
+            return internalName(type);
+        }
+        return "L" + internalName(type) + ";";
+    }
+
+
+    /**
+     * 一个极简的 {@code class} 文件写出器，仅支持生成注解实现类所需的指令。
+     * 生成的方法中不存在分支，因此不需要 {@code StackMapTable}。
+     */
+    private static final class ClassFileWriter {
+        private static final int ACC_PUBLIC = 0x0001, ACC_PRIVATE = 0x0002, ACC_FINAL = 0x0010, ACC_SUPER = 0x0020;
+
+        private static final int ALOAD_0 = 0x2A, ALOAD_1 = 0x2B, ALOAD_2 = 0x2C, ILOAD_3 = 0x1D, ALOAD = 0x19;
+        private static final int ICONST_0 = 0x03, BIPUSH = 0x10, SIPUSH = 0x11, AALOAD = 0x32;
+        private static final int GETFIELD = 0xB4, PUTFIELD = 0xB5, INVOKEVIRTUAL = 0xB6, INVOKESPECIAL = 0xB7, CHECKCAST = 0xC0, RETURN = 0xB1;
+
+        private final ByteArrayOutputStream poolBytes = new ByteArrayOutputStream();
+        private final DataOutputStream pool = new DataOutputStream(poolBytes);
+        private final Map<String, Integer> poolIndex = new HashMap<>();
+        private int poolSize = 1;
+
+        private final String className;
+        private final AnnotationLayout layout;
+
+        private ClassFileWriter(String className, AnnotationLayout layout) {
+            this.className = className;
+            this.layout = layout;
+        }
+
+        private byte[] toByteArray() {
+            try {
+                return write();
+            } catch (IOException e) {
+                // 不会发生
+                throw new IllegalStateException(e);
+            }
+        }
+
+        private byte[] write() throws IOException {
+            final Method[] members = layout.getMembers();
+            final int thisClass = classRef(className);
+            final int superClass = classRef(SUPER_NAME);
+            final int annotationInterface = classRef(internalName(layout.getType()));
+            final int codeName = utf8("Code");
+
+            // fields & methods
+            final ByteArrayOutputStream bodyBytes = new ByteArrayOutputStream();
+            final DataOutputStream body = new DataOutputStream(bodyBytes);
+
+            body.writeShort(members.length);
+            for (int i = 0; i < members.length; i++) {
+                body.writeShort(ACC_PRIVATE | ACC_FINAL);
+                body.writeShort(utf8(fieldName(i)));
+                body.writeShort(utf8(descriptor(members[i].getReturnType())));
+                body.writeShort(0);
+            }
+
+            body.writeShort(members.length + 1);
+            writeConstructor(body, codeName, members);
+            for (int i = 0; i < members.length; i++) {
+                writeAccessor(body, codeName, members[i], i);
+            }
+            // class attributes
+            body.writeShort(0);
+
+            final ByteArrayOutputStream out = new ByteArrayOutputStream(poolBytes.size() + bodyBytes.size() + 32);
+            final DataOutputStream data = new DataOutputStream(out);
+            data.writeInt(0xCAFEBABE);
+            data.writeShort(0);
+            // java 8
+            data.writeShort(52);
+            data.writeShort(poolSize);
+            pool.flush();
+            poolBytes.writeTo(data);
+            data.writeShort(ACC_PUBLIC | ACC_FINAL | ACC_SUPER);
+            data.writeShort(thisClass);
+            data.writeShort(superClass);
+            data.writeShort(1);
+            data.writeShort(annotationInterface);
+            body.flush();
+            bodyBytes.writeTo(data);
+            data.flush();
+            return out.toByteArray();
+        }
+
+
+        private void writeConstructor(DataOutputStream body, int codeName, Method[] members) throws IOException {
+            final ByteArrayOutputStream codeBytes = new ByteArrayOutputStream();
+            final DataOutputStream code = new DataOutputStream(codeBytes);
+            code.writeByte(ALOAD_0);
+            code.writeByte(ALOAD_1);
+            code.writeByte(ALOAD_2);
+            code.writeByte(ILOAD_3);
+            code.writeByte(ALOAD);
+            code.writeByte(4);
+            code.writeByte(INVOKESPECIAL);
+            code.writeShort(methodRef(SUPER_NAME, "<init>", SUPER_CONSTRUCTOR_DESC));
+
+            for (int i = 0; i < members.length; i++) {
+                final Class<?> returnType = members[i].getReturnType();
+                code.writeByte(ALOAD_0);
+                code.writeByte(ALOAD_2);
+                if (i <= 5) {
+                    code.writeByte(ICONST_0 + i);
+                } else if (i <= Byte.MAX_VALUE) {
+                    code.writeByte(BIPUSH);
+                    code.writeByte(i);
+                } else {
+                    code.writeByte(SIPUSH);
+                    code.writeShort(i);
+                }
+                code.writeByte(AALOAD);
+                if (returnType.isPrimitive()) {
+                    final Primitive primitive = PRIMITIVES.get(returnType);
+                    code.writeByte(CHECKCAST);
+                    code.writeShort(classRef(primitive.box));
+                    code.writeByte(INVOKEVIRTUAL);
+                    code.writeShort(methodRef(primitive.box, primitive.unboxName, "()" + descriptor(returnType)));
+                } else {
+                    code.writeByte(CHECKCAST);
+                    code.writeShort(classRef(classRefName(returnType)));
+                }
+                code.writeByte(PUTFIELD);
+                code.writeShort(fieldRef(className, fieldName(i), descriptor(returnType)));
+            }
+            code.writeByte(RETURN);
+
+            writeMethod(body, codeName, ACC_PUBLIC, "<init>", SUPER_CONSTRUCTOR_DESC, 5, 5, codeBytes.toByteArray());
+        }
+
+
+        private void writeAccessor(DataOutputStream body, int codeName, Method member, int slot) throws IOException {
+            final Class<?> returnType = member.getReturnType();
+            final String returnDesc = descriptor(returnType);
+            final ByteArrayOutputStream codeBytes = new ByteArrayOutputStream();
+            final DataOutputStream code = new DataOutputStream(codeBytes);
+            code.writeByte(ALOAD_0);
+            code.writeByte(GETFIELD);
+            code.writeShort(fieldRef(className, fieldName(slot), returnDesc));
+            final int returnOpcode;
+            if (returnType.isPrimitive()) {
+                returnOpcode = PRIMITIVES.get(returnType).returnOpcode;
+            } else {
+                if (returnType.isArray()) {
+                    // 数组需要返回副本
+                    final String arrayName = classRefName(returnType);
+                    code.writeByte(INVOKEVIRTUAL);
+                    code.writeShort(methodRef(arrayName, "clone", "()Ljava/lang/Object;"));
+                    code.writeByte(CHECKCAST);
+                    code.writeShort(classRef(arrayName));
+                }
+                returnOpcode = ARETURN;
+            }
+            code.writeByte(returnOpcode);
+
+            writeMethod(body, codeName, ACC_PUBLIC | ACC_FINAL, member.getName(), "()" + returnDesc, 2, 1, codeBytes.toByteArray());
+        }
+
+
+        private void writeMethod(DataOutputStream body, int codeName, int access, String name, String desc,
+                                 int maxStack, int maxLocals, byte[] code) throws IOException {
+            body.writeShort(access);
+            body.writeShort(utf8(name));
+            body.writeShort(utf8(desc));
+            // attributes: Code
+            body.writeShort(1);
+            body.writeShort(codeName);
+            body.writeInt(2 + 2 + 4 + code.length + 2 + 2);
+            body.writeShort(maxStack);
+            body.writeShort(maxLocals);
+            body.writeInt(code.length);
+            body.write(code);
+            // exception table
+            body.writeShort(0);
+            // code attributes
+            body.writeShort(0);
+        }
+
+
+        private static String fieldName(int slot) {
+            return "v" + slot;
+        }
+
+        private static String classRefName(Class<?> type) {
+            // 数组类型的类引用使用其描述符
+            return internalName(type);
+        }
+
+
+        ///// constant pool /////
+
+        private int utf8(String value) throws IOException {
+            final String key = "U" + value;
+            Integer index = poolIndex.get(key);
+            if (index == null) {
+                pool.writeByte(1);
+                pool.writeUTF(value);
+                index = poolSize++;
+                poolIndex.put(key, index);
+            }
+            return index;
+        }
+
+        private int classRef(String internalName) throws IOException {
+            final String key = "C" + internalName;
+            Integer index = poolIndex.get(key);
+            if (index == null) {
+                final int name = utf8(internalName);
+                pool.writeByte(7);
+                pool.writeShort(name);
+                index = poolSize++;
+                poolIndex.put(key, index);
+            }
+            return index;
+        }
+
+        private int nameAndType(String name, String desc) throws IOException {
+            final String key = "N" + name + ' ' + desc;
+            Integer index = poolIndex.get(key);
+            if (index == null) {
+                final int nameIndex = utf8(name);
+                final int descIndex = utf8(desc);
+                pool.writeByte(12);
+                pool.writeShort(nameIndex);
+                pool.writeShort(descIndex);
+                index = poolSize++;
+                poolIndex.put(key, index);
+            }
+            return index;
+        }
+
+        private int fieldRef(String owner, String name, String desc) throws IOException {
+            return memberRef(9, owner, name, desc);
+        }
+
+        private int methodRef(String owner, String name, String desc) throws IOException {
+            return memberRef(10, owner, name, desc);
+        }
+
+        private int memberRef(int tag, String owner, String name, String desc) throws IOException {
+            final String key = "R" + tag + owner + '.' + name + ' ' + desc;
+            Integer index = poolIndex.get(key);
+            if (index == null) {
+                final int ownerIndex = classRef(owner);
+                final int natIndex = nameAndType(name, desc);
+                pool.writeByte(tag);
+                pool.writeShort(ownerIndex);
+                pool.writeShort(natIndex);
+                index = poolSize++;
+                poolIndex.put(key, index);
+            }
+            return index;
+        }
+    }
+
+}
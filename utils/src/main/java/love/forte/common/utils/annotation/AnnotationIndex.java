@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2021. ForteScarlet All rights reserved.
+ * Project  parent
+ * File     AnnotationIndex.java
+ *
+ * You can contact the author through the following channels:
+ * github https://github.com/ForteScarlet
+ * gitee  https://gitee.com/ForteScarlet
+ * email  ForteScarlet@163.com
+ * QQ     1149159218
+ */
+
+package love.forte.common.utils.annotation;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.AnnotatedElement;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 某个 {@link AnnotatedElement} 上的注解索引。
+ * <p>
+ * 索引中记录了此元素上所有 <b>直接存在</b> 的注解、通过注解继承 <b>间接存在</b> 的注解，
+ * 并且这些注解已经经过了 {@link AnnotateMapping} 的值映射与 {@link MixRepeatableAnnotations} 的合并，
+ * 其结果与 {@link AnnotationUtil#getAnnotation(AnnotatedElement, Class)} 一致。
+ * <p>
+ * 索引在某个元素第一次被使用的时候由 {@link AnnotationUtil} 构建，构建后不可变，
+ * 之后对于任何注解类型的查询都仅是一次哈希查找。
+ *
+ * @author ForteScarlet
+ * @see AnnotationUtil#getAnnotationIndex(AnnotatedElement)
+ */
+public final class AnnotationIndex {
+
+    static final AnnotationIndex EMPTY = new AnnotationIndex(Collections.emptyMap(), Collections.emptyMap());
+
+    /**
+     * 注解类型 -> 注解实例。
+     */
+    private final Map<Class<? extends Annotation>, Annotation> annotations;
+
+    /**
+     * 构建索引时解析失败的注解类型。在获取的时候再抛出，以避免影响对其他注解的获取。
+     */
+    private final Map<Class<? extends Annotation>, RuntimeException> failures;
+
+    AnnotationIndex(Map<Class<? extends Annotation>, Annotation> annotations,
+                    Map<Class<? extends Annotation>, RuntimeException> failures) {
+        this.annotations = annotations;
+        this.failures = failures;
+    }
+
+
+    /**
+     * 获取某个类型的注解。
+     *
+     * @param annotationType 注解类型
+     * @return 注解实例，不存在则为null。
+     */
+    @SuppressWarnings("unchecked")
+    public <T extends Annotation> T get(Class<T> annotationType) {
+        final Annotation annotation = annotations.get(annotationType);
+        if (annotation == null && !failures.isEmpty()) {
+            final RuntimeException failure = failures.get(annotationType);
+            if (failure != null) {
+                throw failure;
+            }
+        }
+        return (T) annotation;
+    }
+
+    /**
+     * 是否存在某个类型的注解。
+     */
+    public boolean contains(Class<? extends Annotation> annotationType) {
+        return get(annotationType) != null;
+    }
+
+    /**
+     * 索引中的所有注解类型。
+     */
+    public Set<Class<? extends Annotation>> types() {
+        return Collections.unmodifiableSet(annotations.keySet());
+    }
+
+    /**
+     * 索引中的所有注解实例。
+     */
+    public Collection<Annotation> annotations() {
+        return Collections.unmodifiableCollection(annotations.values());
+    }
+
+    /**
+     * 得到一个将某个类型的注解替换为 {@code annotation} 的新索引，此索引不会被修改。
+     */
+    AnnotationIndex with(Class<? extends Annotation> annotationType, Annotation annotation) {
+        final Map<Class<? extends Annotation>, Annotation> annotations = new HashMap<>(this.annotations);
+        annotations.put(annotationType, annotation);
+        Map<Class<? extends Annotation>, RuntimeException> failures = this.failures;
+        if (failures.containsKey(annotationType)) {
+            failures = new HashMap<>(failures);
+            failures.remove(annotationType);
+        }
+        return new AnnotationIndex(annotations, failures);
+    }
+
+    /**
+     * 是否存在解析失败的注解类型。
+     */
+    boolean hasFailures() {
+        return !failures.isEmpty();
+    }
+
+    public int size() {
+        return annotations.size();
+    }
+
+    public boolean isEmpty() {
+        return annotations.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return "AnnotationIndex" + annotations.values();
+    }
+}
@@ -2,68 +2,167 @@ package love.forte.common.utils.annotation;
 
 
 import java.lang.annotation.Annotation;
-import java.lang.annotation.AnnotationFormatError;
 import java.lang.annotation.IncompleteAnnotationException;
 import java.lang.reflect.*;
-import java.security.AccessController;
-import java.security.PrivilegedAction;
-import java.util.Arrays;
-import java.util.Iterator;
-import java.util.Map;
+import java.util.*;
 
 /**
  * 注解动态代理实例
+ * <p>
+ * 成员值以 {@link AnnotationLayout} 所分配的 {@code slot} 为索引保存在数组中。
+ * 未提供的成员值会在构建时一次性的从基础注解或默认值中获取，之后的读取不再需要反射调用。
+ * <p>
+ * 实例构建后不可变，因此在任意线程中的读取均无需加锁。
+ * 修改值（参考 {@link AnnotationValueUtil}）时会复制值数组并构建新的实例，未修改的成员值在新旧实例之间共享。
  *
  * @author ForteScarlet
  */
 public class AnnotationInvocationHandler implements InvocationHandler {
     private final Class<? extends Annotation> type;
-    private final Map<String, Object> memberValues;
+    private final AnnotationLayout layout;
+    private final Object[] values;
     private final Annotation baseAnnotation;
 
-    private transient volatile Method[] memberMethods = null;
+    /**
+     * 缓存的哈希值，0代表尚未计算。实例不可变，因此并发时重复计算的结果一致。
+     */
+    private int hash;
 
-    Map<String, Object> getMemberValuesMap() {
-        return memberValues;
+    /**
+     * 得到一个以成员名称为key、基于 {@code values} 的可修改视图。
+     * 用于在构建新实例之前修改值数组，例如 {@link #derive(Object[])}。
+     *
+     * @param values 以 {@code slot} 为索引的值数组，通常为 {@link #values()} 的副本。
+     */
+    Map<String, Object> stagingValuesMap(Object[] values) {
+        return new MemberValuesMap(layout, type, values);
+    }
+
+    /**
+     * 以相同的注解类型与基础注解构建一个新的实例。其中为null的值会被填充为基础注解中的值或默认值。
+     *
+     * @param values 新实例的值数组，会被直接使用。
+     */
+    AnnotationInvocationHandler derive(Object[] values) {
+        return new AnnotationInvocationHandler(type, values, baseAnnotation);
     }
 
     public Object get(String key) {
-        return memberValues.get(key);
+        final int slot = layout.slot(key);
+        return slot < 0 ? null : values[slot];
+    }
+
+    /**
+     * 得到成员名称对应的 {@code slot}，不存在则为 {@code -1}。
+     */
+    int slot(String key) {
+        return layout.slot(key);
+    }
+
+    /**
+     * 根据 {@code slot} 得到成员值。数组值不会被复制。
+     */
+    Object get(int slot) {
+        return values[slot];
+    }
+
+    /**
+     * 得到所有的成员值。不要修改此数组。
+     */
+    Object[] values() {
+        return values;
+    }
+
+    /**
+     * 如果是一个由 {@link AnnotationInvocationHandler} 代理的注解，得到其handler，否则得到null。
+     */
+    static AnnotationInvocationHandler handlerOf(Object annotation) {
+        if (Proxy.isProxyClass(annotation.getClass())) {
+            InvocationHandler handler = Proxy.getInvocationHandler(annotation);
+            if (handler instanceof AnnotationInvocationHandler) {
+                return (AnnotationInvocationHandler) handler;
+            }
+        }
+        return null;
     }
 
     <T extends Annotation> AnnotationInvocationHandler(
             Class<T> annotationType,
             Map<String, Object> memberValues,
             Annotation baseAnnotation
+    ) {
+        this(annotationType, toSlots(AnnotationLayout.of(annotationType), memberValues), baseAnnotation);
+    }
+
+    /**
+     * 直接通过以 {@code slot} 为索引的值数组构建。数组会被直接使用，其中为null的值会被填充为基础注解中的值或默认值。
+     */
+    <T extends Annotation> AnnotationInvocationHandler(
+            Class<T> annotationType,
+            Object[] values,
+            Annotation baseAnnotation
     ) {
         this.type = annotationType;
-        this.memberValues = memberValues;
+        this.layout = AnnotationLayout.of(annotationType);
         this.baseAnnotation = baseAnnotation;
+        this.values = values;
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] == null) {
+                values[i] = fallbackValue(i);
+            }
+        }
     }
 
     <T extends Annotation> AnnotationInvocationHandler(
             Class<T> annotationType,
             Map<String, Object> memberValues
     ) {
-        this.type = annotationType;
-        this.memberValues = memberValues;
-        this.baseAnnotation = null;
+        this(annotationType, memberValues, null);
+    }
+
+
+    private static Object[] toSlots(AnnotationLayout layout, Map<String, Object> memberValues) {
+        final Object[] values = new Object[layout.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = memberValues.get(layout.getName(i));
+        }
+        return values;
+    }
+
+
+    /**
+     * 得到成员在没有提供值的时候所使用的值：基础注解中的值，或者默认值。都不存在则为null。
+     */
+    private Object fallbackValue(int slot) {
+        if (baseAnnotation != null) {
+            try {
+                return layout.getMember(slot).invoke(baseAnnotation);
+            } catch (IllegalAccessException e) {
+                throw new AssertionError(e);
+            } catch (InvocationTargetException e) {
+                final Throwable cause = e.getTargetException();
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                throw new IllegalStateException(cause);
+            }
+        }
+        return layout.getDefault(slot);
     }
 
+
     /**
      * 一个注解的代理逻辑实例。
      */
     @Override
-    public Object invoke(Object proxy, Method method, Object[] args) throws InvocationTargetException, IllegalAccessException {
+    public Object invoke(Object proxy, Method method, Object[] args) {
         final String name = method.getName();
-        Class<?>[] parameterTypes = method.getParameterTypes();
-        //noinspection AlibabaUndefineMagicConstant
-        if ("equals".equals(name) && parameterTypes.length == 1 && parameterTypes[0] == Object.class) {
-            return this.equalsImpl(args[0]);
-        } else if (parameterTypes.length != 0) {
-            // same as sun.reflect.annotation.AnnotationInvocationHandler
-            throw new AssertionError("Too many parameters for an annotation method");
-        } else {
+        final int parameterCount = method.getParameterCount();
+        if (parameterCount == 0) {
+            final int slot = layout.slot(name);
+            if (slot >= 0) {
+                return read(slot);
+            }
             switch (name) {
                 case "toString":
                     return this.toStringImpl();
@@ -72,57 +171,63 @@ public class AnnotationInvocationHandler implements InvocationHandler {
                 case "annotationType":
                     return this.type;
                 default:
-                    Object value = this.memberValues.get(name);
-                    if (value == null) {
-                        if (baseAnnotation != null) {
-                            return method.invoke(baseAnnotation);
-                        }
-
-                        final Object defaultValue = method.getDefaultValue();
-                        if (defaultValue != null) {
-                            return defaultValue;
-                        }
-
-                        throw new IncompleteAnnotationException(this.type, name);
-                    }
-
+                    throw new IncompleteAnnotationException(this.type, name);
+            }
+        }
+        //noinspection AlibabaUndefineMagicConstant
+        if (parameterCount == 1 && "equals".equals(name) && method.getParameterTypes()[0] == Object.class) {
+            return this.equalsImpl(args[0]);
+        }
+        // same as sun.reflect.annotation.AnnotationInvocationHandler
+        throw new AssertionError("Too many parameters for an annotation method");
+    }
 
-                    if (value.getClass().isArray() && Array.getLength(value) != 0) {
-                        value = this.cloneArray(value);
-                    }
 
-                    return value;
-            }
+    private Object read(int slot) {
+        Object value = values[slot];
+        if (value == null) {
+            throw new IncompleteAnnotationException(this.type, layout.getName(slot));
+        }
 
+        if (value.getClass().isArray() && Array.getLength(value) != 0) {
+            value = AnnotationMembers.cloneArray(value);
         }
+
+        return value;
     }
 
+
     private boolean equalsImpl(Object other) {
         if (this == other) {
             return true;
         } else if (!this.type.isInstance(other)) {
             return false;
         } else {
-            Method[] methods = this.getMemberMethods();
+            // 双方的值均以相同的slot顺序保存，直接比较数组。哈希值均有缓存，先行比较。
+            AnnotationInvocationHandler otherHandler = handlerOf(other);
+            if (otherHandler != null) {
+                return this.hashCodeImpl() == otherHandler.hashCodeImpl()
+                        && AnnotationMembers.valuesEquals(this.values, otherHandler.values);
+            }
+            if (other instanceof GeneratedAnnotation) {
+                GeneratedAnnotation generated = (GeneratedAnnotation) other;
+                return this.hashCodeImpl() == generated.hashCode()
+                        && AnnotationMembers.valuesEquals(this.values, generated.values());
+            }
 
-            for (Method method : methods) {
-                String methodName = method.getName();
-                Object value = this.memberValues.get(methodName);
+            Method[] methods = layout.getMembers();
+            for (int i = 0; i < methods.length; i++) {
+                Object value = this.values[i];
                 Object otherValue;
-                AnnotationInvocationHandler otherHandler = this.asOneOfUs(other);
-                if (otherHandler != null) {
-                    otherValue = otherHandler.memberValues.get(methodName);
-                } else {
-                    try {
-                        otherValue = method.invoke(other);
-                    } catch (InvocationTargetException var11) {
-                        return false;
-                    } catch (IllegalAccessException var12) {
-                        throw new AssertionError(var12);
-                    }
+                try {
+                    otherValue = methods[i].invoke(other);
+                } catch (InvocationTargetException var11) {
+                    return false;
+                } catch (IllegalAccessException var12) {
+                    throw new AssertionError(var12);
                 }
 
-                if (!memberValueEquals(value, otherValue)) {
+                if (!AnnotationMembers.memberValueEqualsNullable(value, otherValue)) {
                     return false;
                 }
             }
@@ -131,220 +236,99 @@ public class AnnotationInvocationHandler implements InvocationHandler {
     }
 
 
-    private AnnotationInvocationHandler asOneOfUs(Object other) {
-        if (Proxy.isProxyClass(other.getClass())) {
-            InvocationHandler handler = Proxy.getInvocationHandler(other);
-            if (handler instanceof AnnotationInvocationHandler) {
-                return (AnnotationInvocationHandler) handler;
-            }
-        }
-        return null;
+    private String toStringImpl() {
+        return AnnotationMembers.toString(this.type, layout.getNames(), this.values);
     }
 
-    private Method[] getMemberMethods() {
-        if (this.memberMethods == null) {
-            this.memberMethods = AccessController.doPrivileged((PrivilegedAction<Method[]>) () -> {
-                Method[] methods = AnnotationInvocationHandler.this.type.getDeclaredMethods();
-                AnnotationInvocationHandler.this.validateAnnotationMethods(methods);
-                AccessibleObject.setAccessible(methods, true);
-                return methods;
-            });
+    private int hashCodeImpl() {
+        int hash = this.hash;
+        if (hash == 0) {
+            this.hash = hash = AnnotationMembers.hashCode(layout.getNames(), this.values);
         }
-
-        return this.memberMethods;
+        return hash;
     }
 
 
-    private void validateAnnotationMethods(Method[] methods) {
-        boolean notMalformed = true;
-        int methodsLength = methods.length;
-        int i = 0;
-
-        while (i < methodsLength) {
-            Method method = methods[i];
-            if (method.getModifiers() == (Modifier.PUBLIC | Modifier.ABSTRACT) && !method.isDefault() && method.getParameterCount() == 0 && method.getExceptionTypes().length == 0) {
-                Class<?> returnType = method.getReturnType();
-                if (returnType.isArray()) {
-                    returnType = returnType.getComponentType();
-                    if (returnType.isArray()) {
-                        notMalformed = false;
-                        break;
-                    }
-                }
-
-                //noinspection AlibabaAvoidComplexCondition
-                if ((!returnType.isPrimitive() || returnType == Void.TYPE) && returnType != String.class && returnType != Class.class && !returnType.isEnum() && !returnType.isAnnotation()) {
-                    notMalformed = false;
-                    break;
-                }
-
-                String methodName = method.getName();
-                //noinspection AlibabaAvoidComplexCondition
-                if ((!"toString".equals(methodName) || returnType != String.class) && (!"hashCode".equals(methodName) || returnType != Integer.TYPE) && (!"annotationType".equals(methodName) || returnType != Class.class)) {
-                    ++i;
-                    continue;
-                }
-
-                notMalformed = false;
-                break;
-            }
-
-            notMalformed = false;
-            break;
+    /**
+     * 以成员名称为key的成员值视图。
+     * 其中仅包含存在值的成员，移除一个成员会将其置为null，在构建实例时恢复为基础注解中的值或默认值。
+     */
+    private static final class MemberValuesMap extends AbstractMap<String, Object> {
+        private final AnnotationLayout layout;
+        private final Class<? extends Annotation> type;
+        private final Object[] values;
+
+        private MemberValuesMap(AnnotationLayout layout, Class<? extends Annotation> type, Object[] values) {
+            this.layout = layout;
+            this.type = type;
+            this.values = values;
         }
 
-        if (!notMalformed) {
-            throw new AnnotationFormatError("Malformed method on an annotation type");
+        @Override
+        public Object get(Object key) {
+            if (!(key instanceof String)) {
+                return null;
+            }
+            final int slot = layout.slot((String) key);
+            return slot < 0 ? null : values[slot];
         }
-    }
-
-
-    private static boolean memberValueEquals(Object o1, Object o2) {
-        Class<?> o1Type = o1.getClass();
-        if (!o1Type.isArray()) {
-            return o1.equals(o2);
-        } else if (o1 instanceof Object[] && o2 instanceof Object[]) {
-            return Arrays.equals(((Object[]) o1), ((Object[]) o2));
-        } else if (o2.getClass() != o1Type) {
-            return false;
-        } else if (o1Type == byte[].class) {
-            return Arrays.equals((byte[]) o1, (byte[]) o2);
-        } else if (o1Type == char[].class) {
-            return Arrays.equals((char[]) o1, (char[]) o2);
-        } else if (o1Type == double[].class) {
-            return Arrays.equals((double[]) o1, (double[]) o2);
-        } else if (o1Type == float[].class) {
-            return Arrays.equals((float[]) o1, (float[]) o2);
-        } else if (o1Type == int[].class) {
-            return Arrays.equals((int[]) o1, (int[]) o2);
-        } else if (o1Type == long[].class) {
-            return Arrays.equals((long[]) o1, (long[]) o2);
-        } else if (o1Type == short[].class) {
-            return Arrays.equals((short[]) o1, (short[]) o2);
-        } else {
-            assert o1Type == boolean[].class;
 
-            return Arrays.equals((boolean[]) o1, (boolean[]) o2);
+        @Override
+        public boolean containsKey(Object key) {
+            return get(key) != null;
         }
-    }
 
-    private String toStringImpl() {
-        StringBuilder builder = new StringBuilder(128);
-        builder.append('@');
-        builder.append(this.type.getName());
-        builder.append('(');
-        boolean first = true;
-
-        for (Map.Entry<String, Object> entry : this.memberValues.entrySet()) {
-            if (first) {
-                first = false;
-            } else {
-                builder.append(", ");
+        @Override
+        public Object put(String key, Object value) {
+            final int slot = layout.slot(key);
+            if (slot < 0) {
+                throw new IllegalArgumentException("No member named '" + key + "' in annotation " + type.getName());
             }
-
-            builder.append(entry.getKey());
-            builder.append('=');
-            builder.append(memberValueToString(entry.getValue()));
+            final Object old = values[slot];
+            values[slot] = value;
+            return old;
         }
 
-        builder.append(')');
-        return builder.toString();
-    }
-
-    private static String memberValueToString(Object memberValue) {
-        if (memberValue == null) {
-            return "null";
-        }
-        Class<?> memberValueType = memberValue.getClass();
-        if (!memberValueType.isArray()) {
-            if (String.class.isAssignableFrom(memberValueType)) {
-                return "\"" + memberValue + "\"";
+        @Override
+        public Object remove(Object key) {
+            if (!(key instanceof String)) {
+                return null;
             }
-
-            return memberValue.toString();
-        } else if (memberValueType == byte[].class) {
-            return Arrays.toString((byte[]) memberValue);
-        } else if (memberValueType == char[].class) {
-            return Arrays.toString((char[]) memberValue);
-        } else if (memberValueType == double[].class) {
-            return Arrays.toString((double[]) memberValue);
-        } else if (memberValueType == float[].class) {
-            return Arrays.toString((float[]) memberValue);
-        } else if (memberValueType == int[].class) {
-            return Arrays.toString((int[]) memberValue);
-        } else if (memberValueType == long[].class) {
-            return Arrays.toString((long[]) memberValue);
-        } else if (memberValueType == short[].class) {
-            return Arrays.toString((short[]) memberValue);
-        } else {
-            return memberValueType == boolean[].class ? Arrays.toString((boolean[]) memberValue) : Arrays.toString((Object[]) memberValue);
-        }
-    }
-
-
-    private Object cloneArray(Object var1) {
-        Class<?> var2 = var1.getClass();
-        if (var2 == byte[].class) {
-            byte[] var6 = (byte[]) var1;
-            return var6.clone();
-        } else if (var2 == char[].class) {
-            char[] var5 = (char[]) var1;
-            return var5.clone();
-        } else if (var2 == double[].class) {
-            double[] var4 = (double[]) var1;
-            return var4.clone();
-        } else if (var2 == float[].class) {
-            float[] var11 = (float[]) var1;
-            return var11.clone();
-        } else if (var2 == int[].class) {
-            int[] var10 = (int[]) var1;
-            return var10.clone();
-        } else if (var2 == long[].class) {
-            long[] var9 = (long[]) var1;
-            return var9.clone();
-        } else if (var2 == short[].class) {
-            short[] var8 = (short[]) var1;
-            return var8.clone();
-        } else if (var2 == boolean[].class) {
-            boolean[] var7 = (boolean[]) var1;
-            return var7.clone();
-        } else {
-            Object[] var3 = (Object[]) var1;
-            return var3.clone();
+            final int slot = layout.slot((String) key);
+            if (slot < 0) {
+                return null;
+            }
+            final Object old = values[slot];
+            values[slot] = null;
+            return old;
         }
-    }
 
-    private int hashCodeImpl() {
-        int var1 = 0;
+        @Override
+        public Set<Entry<String, Object>> entrySet() {
+            return new AbstractSet<Entry<String, Object>>() {
+                @Override
+                public Iterator<Entry<String, Object>> iterator() {
+                    final List<Entry<String, Object>> entries = new ArrayList<>(values.length);
+                    for (int i = 0; i < values.length; i++) {
+                        if (values[i] != null) {
+                            entries.add(new SimpleImmutableEntry<>(layout.getName(i), values[i]));
+                        }
+                    }
+                    return entries.iterator();
+                }
 
-        Map.Entry<String, Object> var3;
-        for (Iterator<Map.Entry<String, Object>> var2 = this.memberValues.entrySet().iterator(); var2.hasNext(); var1 += 127 * var3.getKey().hashCode() ^ memberValueHashCode(var3.getValue())) {
-            var3 = var2.next();
+                @Override
+                public int size() {
+                    int size = 0;
+                    for (Object value : values) {
+                        if (value != null) {
+                            size++;
+                        }
+                    }
+                    return size;
+                }
+            };
         }
-
-        return var1;
     }
 
-    private static int memberValueHashCode(Object var0) {
-        Class<?> var1 = var0.getClass();
-        if (!var1.isArray()) {
-            return var0.hashCode();
-        } else if (var1 == byte[].class) {
-            return Arrays.hashCode((byte[]) var0);
-        } else if (var1 == char[].class) {
-            return Arrays.hashCode((char[]) var0);
-        } else if (var1 == double[].class) {
-            return Arrays.hashCode((double[]) var0);
-        } else if (var1 == float[].class) {
-            return Arrays.hashCode((float[]) var0);
-        } else if (var1 == int[].class) {
-            return Arrays.hashCode((int[]) var0);
-        } else if (var1 == long[].class) {
-            return Arrays.hashCode((long[]) var0);
-        } else if (var1 == short[].class) {
-            return Arrays.hashCode((short[]) var0);
-        } else {
-            return var1 == boolean[].class ? Arrays.hashCode((boolean[]) var0) : Arrays.hashCode((Object[]) var0);
-        }
-    }
-}
\ No newline at end of file
+}
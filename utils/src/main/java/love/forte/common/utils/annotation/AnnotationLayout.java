@@ -0,0 +1,224 @@
+package love.forte.common.utils.annotation;
+
+import java.lang.annotation.Annotation;
+import java.lang.annotation.AnnotationFormatError;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.AccessibleObject;
+import java.lang.reflect.Array;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.security.AccessController;
+import java.security.PrivilegedAction;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 某个注解类型的成员结构描述。
+ * <p>
+ * 注解的所有成员方法按照名称排序后依次分配一个 {@code slot}（即数组索引），
+ * 动态构建的注解实例均以此顺序通过 {@code Object[]} 保存成员值。
+ * <p>
+ * 每个注解类型仅会解析一次，通过 {@link ClassValue} 挂载在注解类型上，会随着其类加载器一同被回收。
+ *
+ * @author ForteScarlet
+ */
+final class AnnotationLayout {
+
+    private static final MethodType ACCESSOR_TYPE = MethodType.methodType(Object.class, Annotation.class);
+
+    private static final ClassValue<AnnotationLayout> LAYOUTS = new ClassValue<AnnotationLayout>() {
+        @Override
+        protected AnnotationLayout computeValue(Class<?> type) {
+            //noinspection unchecked
+            return new AnnotationLayout((Class<? extends Annotation>) type);
+        }
+    };
+
+    /**
+     * 得到某个注解类型的成员结构。
+     */
+    static AnnotationLayout of(Class<? extends Annotation> annotationType) {
+        return LAYOUTS.get(annotationType);
+    }
+
+
+    private final Class<? extends Annotation> type;
+    private final Method[] members;
+    private final String[] names;
+    private final Object[] defaults;
+    private final Map<String, Integer> slots;
+
+    /**
+     * 成员的访问句柄，类型为 {@code (Annotation)Object}。在第一次使用时创建。
+     */
+    private final AtomicReferenceArray<MethodHandle> accessors;
+
+    private AnnotationLayout(Class<? extends Annotation> type) {
+        if (!type.isAnnotation()) {
+            throw new IllegalArgumentException(type + " is not an annotation type.");
+        }
+        this.type = type;
+        this.members = AccessController.doPrivileged((PrivilegedAction<Method[]>) () -> {
+            // 注解中的常量可能会产生静态或合成方法（例如lambda），它们不属于注解成员。
+            Method[] methods = Arrays.stream(type.getDeclaredMethods())
+                    .filter(m -> !Modifier.isStatic(m.getModifiers()) && !m.isSynthetic())
+                    .toArray(Method[]::new);
+            validateAnnotationMethods(methods);
+            AccessibleObject.setAccessible(methods, true);
+            return methods;
+        });
+        Arrays.sort(members, Comparator.comparing(Method::getName));
+        final int size = members.length;
+        this.names = new String[size];
+        this.defaults = new Object[size];
+        this.slots = new HashMap<>(size * 2);
+        for (int i = 0; i < size; i++) {
+            final Method member = members[i];
+            names[i] = member.getName();
+            defaults[i] = member.getDefaultValue();
+            slots.put(names[i], i);
+        }
+        this.accessors = new AtomicReferenceArray<>(size);
+    }
+
+
+    Class<? extends Annotation> getType() {
+        return type;
+    }
+
+    /**
+     * 成员数量。
+     */
+    int size() {
+        return members.length;
+    }
+
+    /**
+     * 所有的成员方法。不要修改此数组。
+     */
+    Method[] getMembers() {
+        return members;
+    }
+
+    /**
+     * 所有的成员名称，与 {@link #getMembers()} 一一对应。不要修改此数组。
+     */
+    String[] getNames() {
+        return names;
+    }
+
+    Method getMember(int slot) {
+        return members[slot];
+    }
+
+    String getName(int slot) {
+        return names[slot];
+    }
+
+    /**
+     * 得到成员的默认值。没有默认值则为null。
+     */
+    Object getDefault(int slot) {
+        return defaults[slot];
+    }
+
+    /**
+     * 得到成员名称对应的 {@code slot}，不存在则为 {@code -1}。
+     */
+    int slot(String name) {
+        final Integer slot = slots.get(name);
+        return slot == null ? -1 : slot;
+    }
+
+
+    /**
+     * 得到成员的访问句柄，类型为 {@code (Annotation)Object}。
+     */
+    MethodHandle accessor(int slot) {
+        MethodHandle accessor = accessors.get(slot);
+        if (accessor == null) {
+            try {
+                accessor = MethodHandles.lookup().unreflect(members[slot]).asType(ACCESSOR_TYPE);
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException("Cannot access annotation member " + members[slot], e);
+            }
+            // 并发时可能重复创建，但是结果一致。
+            accessors.set(slot, accessor);
+        }
+        return accessor;
+    }
+
+
+    /**
+     * 读取某个注解实例的成员值。与直接调用成员方法一致，数组值会返回其副本。
+     * <p>
+     * 对于 {@link AnnotationInvocationHandler} 代理的注解与 {@link GeneratedAnnotation}，直接读取其中保存的值。
+     *
+     * @throws Throwable 成员方法抛出的异常
+     */
+    Object read(Annotation annotation, int slot) throws Throwable {
+        final Object value;
+        final AnnotationInvocationHandler handler = AnnotationInvocationHandler.handlerOf(annotation);
+        if (handler != null) {
+            value = handler.get(slot);
+        } else if (annotation instanceof GeneratedAnnotation) {
+            value = ((GeneratedAnnotation) annotation).value(slot);
+        } else {
+            return accessor(slot).invokeExact(annotation);
+        }
+        if (value != null && value.getClass().isArray() && Array.getLength(value) != 0) {
+            return AnnotationMembers.cloneArray(value);
+        }
+        return value;
+    }
+
+
+    private static void validateAnnotationMethods(Method[] methods) {
+        boolean notMalformed = true;
+        int methodsLength = methods.length;
+        int i = 0;
+
+        while (i < methodsLength) {
+            Method method = methods[i];
+            if (method.getModifiers() == (Modifier.PUBLIC | Modifier.ABSTRACT) && !method.isDefault() && method.getParameterCount() == 0 && method.getExceptionTypes().length == 0) {
+                Class<?> returnType = method.getReturnType();
+                if (returnType.isArray()) {
+                    returnType = returnType.getComponentType();
+                    if (returnType.isArray()) {
+                        notMalformed = false;
+                        break;
+                    }
+                }
+
+                //noinspection AlibabaAvoidComplexCondition
+                if ((!returnType.isPrimitive() || returnType == Void.TYPE) && returnType != String.class && returnType != Class.class && !returnType.isEnum() && !returnType.isAnnotation()) {
+                    notMalformed = false;
+                    break;
+                }
+
+                String methodName = method.getName();
+                //noinspection AlibabaAvoidComplexCondition
+                if ((!"toString".equals(methodName) || returnType != String.class) && (!"hashCode".equals(methodName) || returnType != Integer.TYPE) && (!"annotationType".equals(methodName) || returnType != Class.class)) {
+                    ++i;
+                    continue;
+                }
+
+                notMalformed = false;
+                break;
+            }
+
+            notMalformed = false;
+            break;
+        }
+
+        if (!notMalformed) {
+            throw new AnnotationFormatError("Malformed method on an annotation type");
+        }
+    }
+
+}
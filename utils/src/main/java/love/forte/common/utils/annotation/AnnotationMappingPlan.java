@@ -0,0 +1,144 @@
+/*
+ * Copyright (c) 2021. ForteScarlet All rights reserved.
+ * Project  parent
+ * File     AnnotationMappingPlan.java
+ *
+ * You can contact the author through the following channels:
+ * github https://github.com/ForteScarlet
+ * gitee  https://gitee.com/ForteScarlet
+ * email  ForteScarlet@163.com
+ * QQ     1149159218
+ */
+
+package love.forte.common.utils.annotation;
+
+import java.lang.annotation.Annotation;
+import java.lang.invoke.MethodHandle;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 从某个注解类型到其 {@link AnnotateMapping} 所映射的父注解类型的值映射计划。
+ * <p>
+ * 计划在某对类型第一次映射时根据 {@link AnnotateMapping} 构建，其中记录了每个需要映射的成员的访问句柄与其在父注解中的 {@code slot}，
+ * 之后的映射仅需按顺序读取值并填入父注解的值数组中，不再需要反射查找。
+ *
+ * @author ForteScarlet
+ */
+final class AnnotationMappingPlan {
+
+    /**
+     * 来源注解类型 -> (目标注解类型 -> 映射计划)。
+     */
+    private static final ClassValue<ConcurrentMap<Class<?>, AnnotationMappingPlan>> PLANS = new ClassValue<ConcurrentMap<Class<?>, AnnotationMappingPlan>>() {
+        @Override
+        protected ConcurrentMap<Class<?>, AnnotationMappingPlan> computeValue(Class<?> type) {
+            return new ConcurrentHashMap<>(4);
+        }
+    };
+
+    private final AnnotationLayout targetLayout;
+
+    /**
+     * 来源注解中需要映射的成员，仅用于异常信息。
+     */
+    private final Method[] members;
+
+    /**
+     * 来源成员的访问句柄，类型为 {@code (Annotation)Object}。
+     */
+    private final MethodHandle[] accessors;
+
+    /**
+     * 对应的目标 {@code slot}。
+     */
+    private final int[] targetSlots;
+
+    private AnnotationMappingPlan(AnnotationLayout targetLayout, Method[] members, MethodHandle[] accessors, int[] targetSlots) {
+        this.targetLayout = targetLayout;
+        this.members = members;
+        this.accessors = accessors;
+        this.targetSlots = targetSlots;
+    }
+
+
+    /**
+     * 得到从 {@code sourceType} 到 {@code targetType} 的映射计划。
+     */
+    static AnnotationMappingPlan of(Class<? extends Annotation> sourceType, Class<? extends Annotation> targetType) {
+        final ConcurrentMap<Class<?>, AnnotationMappingPlan> plans = PLANS.get(sourceType);
+        AnnotationMappingPlan plan = plans.get(targetType);
+        if (plan == null) {
+            plan = compile(sourceType, targetType);
+            final AnnotationMappingPlan old = plans.putIfAbsent(targetType, plan);
+            if (old != null) {
+                plan = old;
+            }
+        }
+        return plan;
+    }
+
+
+    private static AnnotationMappingPlan compile(Class<? extends Annotation> sourceType, Class<? extends Annotation> targetType) {
+        final AnnotationLayout sourceLayout = AnnotationLayout.of(sourceType);
+        final AnnotationLayout targetLayout = AnnotationLayout.of(targetType);
+        final AnnotateMapping typeMapping = sourceType.getAnnotation(AnnotateMapping.class);
+
+        final Method[] members = new Method[sourceLayout.size()];
+        final MethodHandle[] accessors = new MethodHandle[members.length];
+        final int[] targetSlots = new int[members.length];
+        int size = 0;
+        for (int sourceSlot = 0; sourceSlot < members.length; sourceSlot++) {
+            final Method member = sourceLayout.getMember(sourceSlot);
+            AnnotateMapping mapping = member.getAnnotation(AnnotateMapping.class);
+            if (mapping == null) {
+                mapping = typeMapping;
+            }
+            if (mapping == null || !mapping.value().equals(targetType)) {
+                continue;
+            }
+            String name = mapping.name();
+            if (name.length() == 0) {
+                name = member.getName();
+            }
+            final int slot = targetLayout.slot(name);
+            if (slot < 0) {
+                // 目标注解中不存在此成员
+                continue;
+            }
+            accessors[size] = sourceLayout.accessor(sourceSlot);
+            members[size] = member;
+            targetSlots[size] = slot;
+            size++;
+        }
+
+        return new AnnotationMappingPlan(targetLayout,
+                Arrays.copyOf(members, size),
+                Arrays.copyOf(accessors, size),
+                Arrays.copyOf(targetSlots, size));
+    }
+
+
+    /**
+     * 执行映射，得到一个以 {@code to} 为基础，并填充了来自 {@code from} 的映射值的新实例。
+     *
+     * @param from 来源注解
+     * @param to   目标注解
+     */
+    <T extends Annotation> T apply(Annotation from, T to) {
+        final Object[] values = new Object[targetLayout.size()];
+        final MethodHandle[] accessors = this.accessors;
+        for (int i = 0; i < accessors.length; i++) {
+            try {
+                values[targetSlots[i]] = accessors[i].invokeExact(from);
+            } catch (Throwable e) {
+                throw new RuntimeException("cannot map " + targetLayout.getName(targetSlots[i]) + " for " + members[i], e);
+            }
+        }
+        //noinspection unchecked
+        final Class<T> targetType = (Class<T>) to.annotationType();
+        return AnnotationProxyUtil.instance(targetType, new AnnotationInvocationHandler(targetType, values, to));
+    }
+}
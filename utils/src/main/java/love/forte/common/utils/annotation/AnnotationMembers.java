@@ -0,0 +1,205 @@
+package love.forte.common.utils.annotation;
+
+import java.util.Arrays;
+
+/**
+ * 注解成员值的相关操作。
+ * <p>
+ * 与 {@code sun.reflect.annotation.AnnotationInvocationHandler} 中的实现保持一致，
+ * 以保证动态构建的注解实例与JDK的注解实例之间的 {@code equals}、{@code hashCode} 的兼容。
+ *
+ * @author ForteScarlet
+ */
+final class AnnotationMembers {
+
+    private AnnotationMembers() {
+    }
+
+
+    static boolean memberValueEquals(Object o1, Object o2) {
+        Class<?> o1Type = o1.getClass();
+        if (!o1Type.isArray()) {
+            return o1.equals(o2);
+        } else if (o1 instanceof Object[] && o2 instanceof Object[]) {
+            return Arrays.equals(((Object[]) o1), ((Object[]) o2));
+        } else if (o2.getClass() != o1Type) {
+            return false;
+        } else if (o1Type == byte[].class) {
+            return Arrays.equals((byte[]) o1, (byte[]) o2);
+        } else if (o1Type == char[].class) {
+            return Arrays.equals((char[]) o1, (char[]) o2);
+        } else if (o1Type == double[].class) {
+            return Arrays.equals((double[]) o1, (double[]) o2);
+        } else if (o1Type == float[].class) {
+            return Arrays.equals((float[]) o1, (float[]) o2);
+        } else if (o1Type == int[].class) {
+            return Arrays.equals((int[]) o1, (int[]) o2);
+        } else if (o1Type == long[].class) {
+            return Arrays.equals((long[]) o1, (long[]) o2);
+        } else if (o1Type == short[].class) {
+            return Arrays.equals((short[]) o1, (short[]) o2);
+        } else {
+            assert o1Type == boolean[].class;
+
+            return Arrays.equals((boolean[]) o1, (boolean[]) o2);
+        }
+    }
+
+
+    /**
+     * 同 {@link #memberValueEquals(Object, Object)}，但是允许值为null。
+     */
+    static boolean memberValueEqualsNullable(Object o1, Object o2) {
+        if (o1 == null || o2 == null) {
+            return o1 == o2;
+        }
+        return memberValueEquals(o1, o2);
+    }
+
+
+    /**
+     * 比较两组以相同 {@code slot} 顺序保存的成员值。
+     */
+    static boolean valuesEquals(Object[] values, Object[] otherValues) {
+        if (values.length != otherValues.length) {
+            return false;
+        }
+        for (int i = 0; i < values.length; i++) {
+            if (!memberValueEqualsNullable(values[i], otherValues[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+
+    static String memberValueToString(Object memberValue) {
+        if (memberValue == null) {
+            return "null";
+        }
+        Class<?> memberValueType = memberValue.getClass();
+        if (!memberValueType.isArray()) {
+            if (String.class.isAssignableFrom(memberValueType)) {
+                return "\"" + memberValue + "\"";
+            }
+
+            return memberValue.toString();
+        } else if (memberValueType == byte[].class) {
+            return Arrays.toString((byte[]) memberValue);
+        } else if (memberValueType == char[].class) {
+            return Arrays.toString((char[]) memberValue);
+        } else if (memberValueType == double[].class) {
+            return Arrays.toString((double[]) memberValue);
+        } else if (memberValueType == float[].class) {
+            return Arrays.toString((float[]) memberValue);
+        } else if (memberValueType == int[].class) {
+            return Arrays.toString((int[]) memberValue);
+        } else if (memberValueType == long[].class) {
+            return Arrays.toString((long[]) memberValue);
+        } else if (memberValueType == short[].class) {
+            return Arrays.toString((short[]) memberValue);
+        } else {
+            return memberValueType == boolean[].class ? Arrays.toString((boolean[]) memberValue) : Arrays.toString((Object[]) memberValue);
+        }
+    }
+
+
+    static Object cloneArray(Object var1) {
+        Class<?> var2 = var1.getClass();
+        if (var2 == byte[].class) {
+            byte[] var6 = (byte[]) var1;
+            return var6.clone();
+        } else if (var2 == char[].class) {
+            char[] var5 = (char[]) var1;
+            return var5.clone();
+        } else if (var2 == double[].class) {
+            double[] var4 = (double[]) var1;
+            return var4.clone();
+        } else if (var2 == float[].class) {
+            float[] var11 = (float[]) var1;
+            return var11.clone();
+        } else if (var2 == int[].class) {
+            int[] var10 = (int[]) var1;
+            return var10.clone();
+        } else if (var2 == long[].class) {
+            long[] var9 = (long[]) var1;
+            return var9.clone();
+        } else if (var2 == short[].class) {
+            short[] var8 = (short[]) var1;
+            return var8.clone();
+        } else if (var2 == boolean[].class) {
+            boolean[] var7 = (boolean[]) var1;
+            return var7.clone();
+        } else {
+            Object[] var3 = (Object[]) var1;
+            return var3.clone();
+        }
+    }
+
+
+    static int memberValueHashCode(Object var0) {
+        Class<?> var1 = var0.getClass();
+        if (!var1.isArray()) {
+            return var0.hashCode();
+        } else if (var1 == byte[].class) {
+            return Arrays.hashCode((byte[]) var0);
+        } else if (var1 == char[].class) {
+            return Arrays.hashCode((char[]) var0);
+        } else if (var1 == double[].class) {
+            return Arrays.hashCode((double[]) var0);
+        } else if (var1 == float[].class) {
+            return Arrays.hashCode((float[]) var0);
+        } else if (var1 == int[].class) {
+            return Arrays.hashCode((int[]) var0);
+        } else if (var1 == long[].class) {
+            return Arrays.hashCode((long[]) var0);
+        } else if (var1 == short[].class) {
+            return Arrays.hashCode((short[]) var0);
+        } else {
+            return var1 == boolean[].class ? Arrays.hashCode((boolean[]) var0) : Arrays.hashCode((Object[]) var0);
+        }
+    }
+
+
+    /**
+     * 按照 {@link java.lang.annotation.Annotation#hashCode()} 的约定计算哈希值。值为null的成员会被跳过。
+     */
+    static int hashCode(String[] names, Object[] values) {
+        int hash = 0;
+        for (int i = 0; i < names.length; i++) {
+            final Object value = values[i];
+            if (value != null) {
+                hash += (127 * names[i].hashCode()) ^ memberValueHashCode(value);
+            }
+        }
+        return hash;
+    }
+
+
+    /**
+     * 构建注解的字符串形式，例如 {@code @a.b.Anno(name="v", value=1)}。值为null的成员会被跳过。
+     */
+    static String toString(Class<?> type, String[] names, Object[] values) {
+        StringBuilder builder = new StringBuilder(128);
+        builder.append('@');
+        builder.append(type.getName());
+        builder.append('(');
+        boolean first = true;
+        for (int i = 0; i < names.length; i++) {
+            final Object value = values[i];
+            if (value == null) {
+                continue;
+            }
+            if (first) {
+                first = false;
+            } else {
+                builder.append(", ");
+            }
+            builder.append(names[i]);
+            builder.append('=');
+            builder.append(memberValueToString(value));
+        }
+        builder.append(')');
+        return builder.toString();
+    }
+}
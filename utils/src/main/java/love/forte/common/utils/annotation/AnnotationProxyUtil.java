@@ -13,6 +13,8 @@
 package love.forte.common.utils.annotation;
 
 import java.lang.annotation.Annotation;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
 import java.util.Map;
 
@@ -35,6 +37,11 @@ public class AnnotationProxyUtil {
                 new AnnotationInvocationHandler(annotationType, params, baseAnnotation));
     }
 
+    @SuppressWarnings("unchecked")
+    static <T extends Annotation> T proxy(Class<T> annotationType, AnnotationInvocationHandler handler) {
+        return (T) Proxy.newProxyInstance(annotationType.getClassLoader(), new Class[]{annotationType}, handler);
+    }
+
     public static <T extends Annotation> T proxy(Class<T> annotationType,
                                           ClassLoader classLoader,
                                           Map<String, Object> params) {
@@ -52,6 +59,96 @@ public class AnnotationProxyUtil {
     }
 
 
+    /**
+     * 构建一个注解实例。
+     * <p>
+     * 与 {@link #proxy(Class, Annotation, Map)} 不同，此方法会优先使用为此注解类型生成的实现类（见 {@link GeneratedAnnotation}），
+     * 其成员值在构建时即被确定并保存在 {@code final} 字段中，成员的读取不再经过动态代理。
+     * 因此得到的实例是 <b>不可变</b> 的，通过 {@link AnnotationValueUtil} 修改其值时将会得到一个新的实例。
+     * <p>
+     * 当注解类型无法生成实现类（例如注解类型或其成员类型不是 {@code public} 的），
+     * 或者存在无法确定的成员值（没有提供值、没有基础注解且没有默认值）时，会使用 {@link #proxy(Class, Annotation, Map)} 代替。
+     *
+     * @param annotationType 注解类型
+     * @param baseAnnotation 基础注解，当 {@code params} 中不存在某个值的时候从此注解中获取。可以为null。
+     * @param params         参数列表
+     * @return 注解实例
+     */
+    public static <T extends Annotation> T instance(Class<T> annotationType, Annotation baseAnnotation, Map<String, Object> params) {
+        final AnnotationLayout layout = AnnotationLayout.of(annotationType);
+        final Object[] values = new Object[layout.size()];
+        for (int i = 0; i < values.length; i++) {
+            Object value = params.get(layout.getName(i));
+            if (value == null && baseAnnotation != null) {
+                value = invokeMember(layout.getMember(i), baseAnnotation);
+            }
+            if (value == null) {
+                value = layout.getDefault(i);
+            }
+            if (value == null) {
+                return proxy(annotationType, baseAnnotation, params);
+            }
+            values[i] = value;
+        }
+
+        final Annotation instance = AnnotationClassGenerator.newInstance(layout, values);
+        if (instance == null) {
+            return proxy(annotationType, baseAnnotation, params);
+        }
+        return annotationType.cast(instance);
+    }
+
+
+    /**
+     * 构建一个注解实例。
+     *
+     * @param annotationType 注解类型
+     * @param params         参数列表
+     * @return 注解实例
+     * @see #instance(Class, Annotation, Map)
+     */
+    public static <T extends Annotation> T instance(Class<T> annotationType, Map<String, Object> params) {
+        return instance(annotationType, null, params);
+    }
+
+
+    /**
+     * 通过handler中已经确定的成员值构建注解实例。
+     * 优先使用生成的实现类，当注解类型无法生成实现类或者存在无法确定的成员值时，使用此handler代理。
+     *
+     * @param annotationType 注解类型
+     * @param handler        成员值的来源。其值数组会被生成的实例直接使用，因此之后不应再被修改。
+     */
+    static <T extends Annotation> T instance(Class<T> annotationType, AnnotationInvocationHandler handler) {
+        final Object[] values = handler.values();
+        for (Object value : values) {
+            if (value == null) {
+                return proxy(annotationType, handler);
+            }
+        }
+        final Annotation instance = AnnotationClassGenerator.newInstance(AnnotationLayout.of(annotationType), values);
+        if (instance == null) {
+            return proxy(annotationType, handler);
+        }
+        return annotationType.cast(instance);
+    }
+
+
+    private static Object invokeMember(Method member, Annotation annotation) {
+        try {
+            return member.invoke(annotation);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("Cannot access annotation member " + member, e);
+        } catch (InvocationTargetException e) {
+            final Throwable cause = e.getTargetException();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException("Cannot get annotation member " + member, cause);
+        }
+    }
+
+
 
 
 
@@ -0,0 +1,532 @@
+/*
+ * Copyright (c) 2021. ForteScarlet All rights reserved.
+ * Project  parent
+ * File     AnnotationSnapshot.java
+ *
+ * You can contact the author through the following channels:
+ * github https://github.com/ForteScarlet
+ * gitee  https://gitee.com/ForteScarlet
+ * email  ForteScarlet@163.com
+ * QQ     1149159218
+ */
+
+package love.forte.common.utils.annotation;
+
+import java.io.*;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.*;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+/**
+ * 注解索引的持久化快照。
+ * <p>
+ * 快照中以二进制的形式记录了一批类型与其方法、字段、构造上的 {@link AnnotationIndex 注解索引}，包括其中每个注解的类型与全部的属性值，
+ * 并通过一个类路径指纹标识其有效性。下一次启动时，如果指纹一致，便可以通过 {@link #load(Path, String, ClassLoader)} 以内存映射的方式加载快照，
+ * 并通过 {@link AnnotationUtil#setSnapshot(AnnotationSnapshot)} 交由 {@link AnnotationUtil} 使用：
+ * 构建注解索引时会优先从快照中还原，而不再进行注解的反射解析与继承、映射等处理。
+ * <p>
+ * 快照以类型为单位在第一次使用时解码，没有被使用的类型不会产生任何开销。
+ * 无法还原的元素（例如类型已经不存在）会回退为正常的解析。参数上的注解不会被记录。
+ *
+ * <pre>{@code
+ * String fingerprint = AnnotationSnapshot.classpathFingerprint();
+ * AnnotationSnapshot snapshot = AnnotationSnapshot.load(file, fingerprint, classLoader);
+ * if (snapshot != null) {
+ *     AnnotationUtil.setSnapshot(snapshot);
+ * } else {
+ *     // 正常启动后保存快照
+ *     AnnotationSnapshot.write(file, fingerprint, classes);
+ * }
+ * }</pre>
+ *
+ * @author ForteScarlet
+ */
+public final class AnnotationSnapshot {
+
+    private static final int MAGIC = 0x464F4153;
+    private static final short VERSION = 1;
+
+    private static final char TYPE = 'T';
+    private static final char METHOD = 'M';
+    private static final char FIELD = 'F';
+    private static final char CONSTRUCTOR = 'C';
+
+    private static final Map<String, Class<?>> PRIMITIVES = new HashMap<>(16);
+
+    static {
+        for (Class<?> type : new Class<?>[]{boolean.class, byte.class, char.class, short.class, int.class, long.class, float.class, double.class, void.class}) {
+            PRIMITIVES.put(type.getName(), type);
+        }
+    }
+
+    private final ByteBuffer buffer;
+    private final ClassLoader classLoader;
+
+    /**
+     * 类型名称 -> 类型数据在 {@link #buffer} 中的位置。
+     */
+    private final Map<String, Integer> offsets;
+
+    /**
+     * 已经解码的类型数据：元素描述 -> 注解索引。
+     */
+    private final ClassValue<Map<String, AnnotationIndex>> decoded = new ClassValue<Map<String, AnnotationIndex>>() {
+        @Override
+        protected Map<String, AnnotationIndex> computeValue(Class<?> type) {
+            return decode(type);
+        }
+    };
+
+    private AnnotationSnapshot(ByteBuffer buffer, ClassLoader classLoader, Map<String, Integer> offsets) {
+        this.buffer = buffer;
+        this.classLoader = classLoader;
+        this.offsets = offsets;
+    }
+
+
+    /**
+     * 快照中记录的类型数量。
+     */
+    public int size() {
+        return offsets.size();
+    }
+
+
+    /**
+     * 根据当前的 {@code java.class.path} 计算类路径指纹。
+     *
+     * @see #fingerprint(Collection)
+     */
+    public static String classpathFingerprint() throws IOException {
+        final List<Path> paths = new ArrayList<>();
+        for (String path : System.getProperty("java.class.path", "").split(File.pathSeparator)) {
+            if (!path.isEmpty()) {
+                paths.add(Paths.get(path));
+            }
+        }
+        return fingerprint(paths);
+    }
+
+
+    /**
+     * 计算一组类路径的指纹。
+     * <p>
+     * 对于文件（例如jar），使用其路径、大小与修改时间；对于目录，使用其中所有文件的相对路径、大小与修改时间。
+     * 不存在的路径仅使用其路径。
+     *
+     * @param classpath 类路径
+     * @return 十六进制的指纹字符串
+     */
+    public static String fingerprint(Collection<Path> classpath) throws IOException {
+        final MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        for (Path path : classpath) {
+            final Path root = path.toAbsolutePath().normalize();
+            update(digest, root.toString());
+            if (Files.isDirectory(root)) {
+                final List<String> entries = new ArrayList<>();
+                Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+                    @Override
+                    public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                        entries.add(root.relativize(file) + ":" + attrs.size() + ":" + attrs.lastModifiedTime().toMillis());
+                        return FileVisitResult.CONTINUE;
+                    }
+                });
+                Collections.sort(entries);
+                for (String entry : entries) {
+                    update(digest, entry);
+                }
+            } else if (Files.exists(root)) {
+                update(digest, Files.size(root) + ":" + Files.getLastModifiedTime(root).toMillis());
+            }
+        }
+        final StringBuilder builder = new StringBuilder(64);
+        for (byte b : digest.digest()) {
+            builder.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return builder.toString();
+    }
+
+    private static void update(MessageDigest digest, String value) {
+        digest.update(value.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+    }
+
+
+    /**
+     * 将一批类型的注解索引写入快照文件。索引会通过 {@link AnnotationUtil#getAnnotationIndex(AnnotatedElement)} 获取。
+     * <p>
+     * 解析失败的元素，或者存在无法记录的属性值的元素不会被写入，它们在使用快照时会进行正常的解析。
+     *
+     * @param file        快照文件
+     * @param fingerprint 类路径指纹
+     * @param types       需要记录的类型
+     */
+    public static void write(Path file, String fingerprint, Collection<? extends Class<?>> types) throws IOException {
+        final ByteArrayOutputStream bodies = new ByteArrayOutputStream(8192);
+        final DataOutputStream bodyOut = new DataOutputStream(bodies);
+        final Map<String, Integer> offsets = new LinkedHashMap<>(types.size() * 2);
+
+        for (Class<?> type : types) {
+            if (offsets.containsKey(type.getName())) {
+                continue;
+            }
+            final List<byte[]> elements = new ArrayList<>();
+            writeElement(elements, TYPE + "", type);
+            final ClassMembers members = ClassMembers.of(type);
+            members.forEachMember(member -> {
+                if (!(member instanceof Parameter)) {
+                    writeElement(elements, descriptor(member), member);
+                }
+            });
+            offsets.put(type.getName(), bodyOut.size());
+            bodyOut.writeInt(elements.size());
+            for (byte[] element : elements) {
+                bodyOut.writeInt(element.length);
+                bodyOut.write(element);
+            }
+        }
+        bodyOut.flush();
+
+        final Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        final Path temp = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+            writeString(out, fingerprint);
+            out.writeInt(offsets.size());
+            for (Map.Entry<String, Integer> entry : offsets.entrySet()) {
+                writeString(out, entry.getKey());
+                out.writeInt(entry.getValue());
+            }
+            bodies.writeTo(out);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+
+    private static void writeElement(List<byte[]> elements, String descriptor, AnnotatedElement element) {
+        try {
+            final AnnotationIndex index = AnnotationUtil.getAnnotationIndex(element);
+            if (index.hasFailures()) {
+                return;
+            }
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+            final DataOutputStream out = new DataOutputStream(bytes);
+            writeString(out, descriptor);
+            out.writeInt(index.size());
+            for (Class<? extends Annotation> type : index.types()) {
+                writeString(out, type.getName());
+                writeAnnotation(out, index.get(type));
+            }
+            out.flush();
+            elements.add(bytes.toByteArray());
+        } catch (RuntimeException | IOException e) {
+            // 跳过此元素，使用快照时会进行正常的解析。
+        }
+    }
+
+
+    private static void writeAnnotation(DataOutputStream out, Annotation annotation) throws IOException {
+        final AnnotationLayout layout = AnnotationLayout.of(annotation.annotationType());
+        writeString(out, layout.getType().getName());
+        out.writeShort(layout.size());
+        for (int i = 0; i < layout.size(); i++) {
+            final Object value;
+            try {
+                value = layout.read(annotation, i);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new IllegalStateException(e);
+            }
+            writeString(out, layout.getName(i));
+            writeValue(out, value);
+        }
+    }
+
+
+    private static void writeValue(DataOutputStream out, Object value) throws IOException {
+        if (value instanceof Boolean) {
+            out.writeByte('Z');
+            out.writeBoolean((Boolean) value);
+        } else if (value instanceof Byte) {
+            out.writeByte('B');
+            out.writeByte((Byte) value);
+        } else if (value instanceof Character) {
+            out.writeByte('C');
+            out.writeChar((Character) value);
+        } else if (value instanceof Short) {
+            out.writeByte('S');
+            out.writeShort((Short) value);
+        } else if (value instanceof Integer) {
+            out.writeByte('I');
+            out.writeInt((Integer) value);
+        } else if (value instanceof Long) {
+            out.writeByte('J');
+            out.writeLong((Long) value);
+        } else if (value instanceof Float) {
+            out.writeByte('F');
+            out.writeFloat((Float) value);
+        } else if (value instanceof Double) {
+            out.writeByte('D');
+            out.writeDouble((Double) value);
+        } else if (value instanceof String) {
+            out.writeByte('s');
+            writeString(out, (String) value);
+        } else if (value instanceof Enum) {
+            out.writeByte('e');
+            writeString(out, ((Enum<?>) value).getDeclaringClass().getName());
+            writeString(out, ((Enum<?>) value).name());
+        } else if (value instanceof Class) {
+            out.writeByte('c');
+            writeString(out, ((Class<?>) value).getName());
+        } else if (value instanceof Annotation) {
+            out.writeByte('@');
+            writeAnnotation(out, (Annotation) value);
+        } else if (value != null && value.getClass().isArray()) {
+            out.writeByte('[');
+            writeString(out, value.getClass().getComponentType().getName());
+            final int length = Array.getLength(value);
+            out.writeInt(length);
+            for (int i = 0; i < length; i++) {
+                writeValue(out, Array.get(value, i));
+            }
+        } else {
+            throw new IllegalArgumentException("Unsupported annotation value: " + value);
+        }
+    }
+
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+
+    /**
+     * 以内存映射的方式加载快照文件。
+     *
+     * @param file        快照文件
+     * @param fingerprint 当前的类路径指纹
+     * @param classLoader 用于加载快照中的类型的类加载器
+     * @return 快照。如果文件不存在、格式不正确或者指纹不一致，得到null。
+     */
+    public static AnnotationSnapshot load(Path file, String fingerprint, ClassLoader classLoader) throws IOException {
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        final MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        try {
+            if (buffer.getInt() != MAGIC || buffer.getShort() != VERSION || !fingerprint.equals(readString(buffer))) {
+                return null;
+            }
+            final int count = buffer.getInt();
+            final Map<String, Integer> offsets = new HashMap<>(count * 2);
+            final String[] names = new String[count];
+            final int[] relative = new int[count];
+            for (int i = 0; i < count; i++) {
+                names[i] = readString(buffer);
+                relative[i] = buffer.getInt();
+            }
+            final int base = ((Buffer) buffer).position();
+            for (int i = 0; i < count; i++) {
+                offsets.put(names[i], base + relative[i]);
+            }
+            return new AnnotationSnapshot(buffer, classLoader, offsets);
+        } catch (RuntimeException e) {
+            // 文件损坏
+            return null;
+        }
+    }
+
+
+    /**
+     * 从快照中得到某个元素的注解索引。
+     *
+     * @return 注解索引，如果快照中不存在此元素则为null。
+     */
+    AnnotationIndex find(AnnotatedElement element) {
+        final Class<?> type;
+        final String descriptor;
+        if (element instanceof Class) {
+            type = (Class<?>) element;
+            descriptor = TYPE + "";
+        } else if (element instanceof Executable || element instanceof Field) {
+            type = ((Member) element).getDeclaringClass();
+            descriptor = descriptor(element);
+        } else {
+            return null;
+        }
+        if (!offsets.containsKey(type.getName())) {
+            return null;
+        }
+        return decoded.get(type).get(descriptor);
+    }
+
+
+    private Map<String, AnnotationIndex> decode(Class<?> type) {
+        final Integer offset = offsets.get(type.getName());
+        if (offset == null || type.getClassLoader() != classLoader && !isVisible(type)) {
+            return Collections.emptyMap();
+        }
+        final ByteBuffer buffer = this.buffer.duplicate();
+        // 通过 Buffer 调用，避免在更高版本的JDK中编译时链接到 JDK1.8 中不存在的 ByteBuffer.position(int)
+        ((Buffer) buffer).position(offset);
+        final int count = buffer.getInt();
+        final Map<String, AnnotationIndex> indexes = new HashMap<>(count * 2);
+        for (int i = 0; i < count; i++) {
+            final int length = buffer.getInt();
+            final int end = ((Buffer) buffer).position() + length;
+            final String descriptor = readString(buffer);
+            try {
+                final int size = buffer.getInt();
+                final Map<Class<? extends Annotation>, Annotation> annotations = new HashMap<>(size * 2);
+                for (int a = 0; a < size; a++) {
+                    //noinspection unchecked
+                    final Class<? extends Annotation> key = (Class<? extends Annotation>) loadClass(readString(buffer));
+                    annotations.put(key, readAnnotation(buffer));
+                }
+                indexes.put(descriptor, annotations.isEmpty() ? AnnotationIndex.EMPTY : new AnnotationIndex(annotations, Collections.emptyMap()));
+            } catch (ClassNotFoundException | LinkageError | RuntimeException e) {
+                // 无法还原，此元素回退为正常的解析。
+                ((Buffer) buffer).position(end);
+            }
+        }
+        return indexes;
+    }
+
+
+    /**
+     * 类型是否与快照的类加载器所加载的同名类型一致。
+     */
+    private boolean isVisible(Class<?> type) {
+        try {
+            return Class.forName(type.getName(), false, classLoader) == type;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+
+
+    private Annotation readAnnotation(ByteBuffer buffer) throws ClassNotFoundException {
+        //noinspection unchecked
+        final Class<? extends Annotation> type = (Class<? extends Annotation>) loadClass(readString(buffer));
+        final int size = buffer.getShort();
+        final Map<String, Object> values = new HashMap<>(size * 2);
+        for (int i = 0; i < size; i++) {
+            final String name = readString(buffer);
+            values.put(name, readValue(buffer));
+        }
+        return AnnotationProxyUtil.instance(type, values);
+    }
+
+
+    private Object readValue(ByteBuffer buffer) throws ClassNotFoundException {
+        final char tag = (char) buffer.get();
+        switch (tag) {
+            case 'Z':
+                return buffer.get() != 0;
+            case 'B':
+                return buffer.get();
+            case 'C':
+                return buffer.getChar();
+            case 'S':
+                return buffer.getShort();
+            case 'I':
+                return buffer.getInt();
+            case 'J':
+                return buffer.getLong();
+            case 'F':
+                return buffer.getFloat();
+            case 'D':
+                return buffer.getDouble();
+            case 's':
+                return readString(buffer);
+            case 'e': {
+                final Class<?> enumType = loadClass(readString(buffer));
+                final String name = readString(buffer);
+                //noinspection unchecked,rawtypes
+                return Enum.valueOf((Class<? extends Enum>) enumType, name);
+            }
+            case 'c':
+                return loadClass(readString(buffer));
+            case '@':
+                return readAnnotation(buffer);
+            case '[': {
+                final Class<?> componentType = loadClass(readString(buffer));
+                final int length = buffer.getInt();
+                final Object array = Array.newInstance(componentType, length);
+                for (int i = 0; i < length; i++) {
+                    Array.set(array, i, readValue(buffer));
+                }
+                return array;
+            }
+            default:
+                throw new IllegalStateException("Unknown value tag: " + tag);
+        }
+    }
+
+
+    private Class<?> loadClass(String name) throws ClassNotFoundException {
+        final Class<?> primitive = PRIMITIVES.get(name);
+        return primitive != null ? primitive : Class.forName(name, false, classLoader);
+    }
+
+
+    private static String readString(ByteBuffer buffer) {
+        final byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+
+    /**
+     * 成员的描述，例如 {@code Mname(int,java.lang.String)void}、{@code Fname}、{@code C(int)}。
+     */
+    private static String descriptor(AnnotatedElement member) {
+        if (member instanceof Field) {
+            return FIELD + ((Field) member).getName();
+        }
+        final Executable executable = (Executable) member;
+        final StringBuilder builder = new StringBuilder(32);
+        if (executable instanceof Method) {
+            builder.append(METHOD).append(executable.getName());
+        } else {
+            builder.append(CONSTRUCTOR);
+        }
+        builder.append('(');
+        final Class<?>[] parameterTypes = executable.getParameterTypes();
+        for (int i = 0; i < parameterTypes.length; i++) {
+            if (i > 0) {
+                builder.append(',');
+            }
+            builder.append(parameterTypes[i].getName());
+        }
+        builder.append(')');
+        if (executable instanceof Method) {
+            builder.append(((Method) executable).getReturnType().getName());
+        }
+        return builder.toString();
+    }
+}
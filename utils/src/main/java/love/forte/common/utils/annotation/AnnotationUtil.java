@@ -12,18 +12,26 @@
 
 package love.forte.common.utils.annotation;
 
-import love.forte.common.collections.LRULinkedHashMap;
+import love.forte.common.collections.ConcurrentLruMap;
 
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
 import java.lang.annotation.Annotation;
+import java.lang.annotation.AnnotationFormatError;
 import java.lang.annotation.ElementType;
 import java.lang.annotation.Repeatable;
 import java.lang.annotation.Target;
-import java.lang.reflect.AnnotatedElement;
-import java.lang.reflect.Array;
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
+import java.lang.invoke.MethodType;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.*;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
 
 /**
  * 对于一些注解的获取等相关的工具类。
@@ -46,31 +54,67 @@ public class AnnotationUtil {
 
 
     /**
-     * 注解缓存，记录曾经保存过的注解与其所在类
+     * 注解缓存，记录曾经解析过的元素与其注解索引。
+     * 读操作无锁，多线程下可直接访问。
+     * <p>
+     * 索引中同时记录了存在与不存在的注解信息，因此不再需要额外的 {@code NULL_CACHE}。
+     * <p>
+     * 类型与其成员的索引保存在 {@link #CLASS_METADATA} 中，此缓存仅用于其他的 {@link AnnotatedElement} 实现。
+     */
+    private static final ConcurrentLruMap<AnnotatedElement, AnnotationIndex> ANNOTATION_CACHE = new ConcurrentLruMap<>(128);
+
+    /**
+     * 类型的注解元数据，保存在类型自身上，会随着类加载器一同被回收。
+     */
+    private static final ClassValue<ClassAnnotationMetadata> CLASS_METADATA = new ClassValue<ClassAnnotationMetadata>() {
+        @Override
+        protected ClassAnnotationMetadata computeValue(Class<?> type) {
+            return new ClassAnnotationMetadata(type, metadataGeneration, classIndexes);
+        }
+    };
+
+    /**
+     * {@link #CLASS_METADATA} 中发布的注解索引数量（类型与成员）。
+     * {@link #cleanCache()} 时替换为新的计数，旧版本的元数据仍然只会修改旧的计数。
+     */
+    private static volatile LongAdder classIndexes = new LongAdder();
+
+    /**
+     * {@link #CLASS_METADATA} 的版本。{@link ClassValue} 无法被整体清空，因此通过版本号使旧的元数据失效。
      */
-    private static final LRULinkedHashMap<AnnotatedElement, Map<Class<? extends Annotation>, Annotation>> ANNOTATION_CACHE = new LRULinkedHashMap<>(128);
+    private static volatile int metadataGeneration;
 
     /**
-     * 记录已经证实不存在的注解信息
+     * 缓存统计。默认关闭。
      */
-    private static final LRULinkedHashMap<AnnotatedElement, Set<Class<? extends Annotation>>> NULL_CACHE = new LRULinkedHashMap<>(128);
+    private static final AnnotationCacheCounters COUNTERS = new AnnotationCacheCounters();
 
+    /**
+     * 注解索引的快照。构建索引时优先从快照中还原。
+     */
+    private static volatile AnnotationSnapshot snapshot;
 
-    private static final Set<String> OBJECT_METHODS;
+    /**
+     * 统计信息在JMX中的名称。
+     */
+    private static final String STATS_MBEAN_NAME = "love.forte.common.utils.annotation:type=AnnotationCacheStats";
 
     static {
-        OBJECT_METHODS = new HashSet<>();
-        OBJECT_METHODS.add("toString");
-        OBJECT_METHODS.add("equals");
-        OBJECT_METHODS.add("hashCode");
-        OBJECT_METHODS.add("getClass");
-        OBJECT_METHODS.add("clone");
-        OBJECT_METHODS.add("notify");
-        OBJECT_METHODS.add("notifyAll");
-        OBJECT_METHODS.add("wait");
-        OBJECT_METHODS.add("finalize");
+        ANNOTATION_CACHE.setEvictionListener((k, v) -> COUNTERS.recordEviction());
     }
 
+    /**
+     * 记录注解类型是否标注了 {@link MixRepeatableAnnotations}。
+     */
+    private static final ClassValue<Boolean> MIX_REPEATABLE = new ClassValue<Boolean>() {
+        @Override
+        protected Boolean computeValue(Class<?> type) {
+            //noinspection unchecked
+            return resolveAnnotation(null, type, MixRepeatableAnnotations.class) != null;
+        }
+    };
+
+
     /**
      * 得到一个注解的默认值代理。可以提供额外的参数。
      *
@@ -121,12 +165,399 @@ public class AnnotationUtil {
      */
     @SafeVarargs
     public static <T extends Annotation> T getAnnotation(AnnotatedElement from, Class<T> annotationType, Class<T>... ignored) {
-        return getAnnotation(null, from, annotationType, ignored);
+        if (ignored.length == 0) {
+            final int localMisses = COUNTERS.localMisses();
+            final T annotation = getAnnotationIndex(from).get(annotationType);
+            if (annotation == null) {
+                COUNTERS.recordNegativeHit(localMisses);
+            }
+            return annotation;
+        }
+        // 存在忽略列表的时候结果与索引不一致，不使用缓存。
+        return resolveAnnotation(null, from, annotationType, ignored);
     }
 
 
     public static boolean containsAnnotation(AnnotatedElement from, Class<? extends Annotation> annotationType) {
-        return getAnnotation(from, annotationType) != null;
+        final int localMisses = COUNTERS.localMisses();
+        final boolean contains = getAnnotationIndex(from).contains(annotationType);
+        if (!contains) {
+            COUNTERS.recordNegativeHit(localMisses);
+        }
+        return contains;
+    }
+
+
+    /**
+     * 从某个元素及其继承结构中获取注解。
+     * <p>
+     * 对于类型，首先从其自身获取，然后依次从 {@link ClassMembers#supertypes() 父类型} 中获取：
+     * 从近到远的父类，然后按照广度优先的顺序依次为实现的接口。
+     * <p>
+     * 对于方法，首先从其自身获取，然后按照相同的顺序从父类型中被其重写的方法（同名同参，且非 {@code private}、非 {@code static}）上获取。
+     * 实现泛型父类型中的方法时，会根据编译器生成的桥接方法匹配擦除后的参数类型；其他包中的包级私有方法不会被视为被重写。
+     * <p>
+     * 每个层级上的获取与 {@link #getAnnotation(AnnotatedElement, Class)} 一致，返回第一个获取到的注解。
+     * 对于每个 (元素, 注解类型) 的查找结果都会被记录，之后的获取不会再次查找。
+     * <p>
+     * 其他元素等同于 {@link #getAnnotation(AnnotatedElement, Class)}。
+     *
+     * @param from           获取注解的某个类型或方法
+     * @param annotationType 想要获取的注解类型
+     * @return 获取到的第一个注解对象
+     */
+    public static <T extends Annotation> T getInheritedAnnotation(AnnotatedElement from, Class<T> annotationType) {
+        if (from instanceof Class) {
+            final Class<?> type = (Class<?>) from;
+            final ClassMembers members = ClassMembers.of(type);
+            return classMetadata(type).inherited(members.typeKey(), annotationType,
+                    () -> resolveInheritedAnnotation(type, members.supertypes(), annotationType));
+        }
+        if (from instanceof Method) {
+            final Method method = (Method) from;
+            final Class<?> declaringClass = method.getDeclaringClass();
+            final ClassMembers members = ClassMembers.of(declaringClass);
+            final AnnotatedElementKey key = members.keyOf(method);
+            if (key != null) {
+                return classMetadata(declaringClass).inherited(key, annotationType,
+                        () -> resolveInheritedAnnotation(method, members.supertypes(), annotationType));
+            }
+        }
+        return getAnnotation(from, annotationType);
+    }
+
+
+    private static <T extends Annotation> T resolveInheritedAnnotation(Class<?> type, Class<?>[] supertypes, Class<T> annotationType) {
+        T annotation = getAnnotation(type, annotationType);
+        for (int i = 0; annotation == null && i < supertypes.length; i++) {
+            annotation = getAnnotation(supertypes[i], annotationType);
+        }
+        return annotation;
+    }
+
+
+    private static <T extends Annotation> T resolveInheritedAnnotation(Method method, Class<?>[] supertypes, Class<T> annotationType) {
+        T annotation = getAnnotation(method, annotationType);
+        final int modifiers = method.getModifiers();
+        if (annotation != null || Modifier.isPrivate(modifiers) || Modifier.isStatic(modifiers)) {
+            return annotation;
+        }
+        final String name = method.getName();
+        final Class<?> declaringClass = method.getDeclaringClass();
+        final List<Class<?>[]> signatures = ClassMembers.of(declaringClass).overridableSignatures(method);
+        for (int i = 0; annotation == null && i < supertypes.length; i++) {
+            final ClassMembers members = ClassMembers.of(supertypes[i]);
+            for (int j = 0; annotation == null && j < signatures.size(); j++) {
+                final Method overridden = members.findOverridable(name, signatures.get(j), declaringClass);
+                if (overridden != null) {
+                    annotation = getAnnotation(overridden, annotationType);
+                }
+            }
+        }
+        return annotation;
+    }
+
+
+    /**
+     * 从某个元素上一次性获取多个类型的注解。
+     * 元素的注解只会被解析一次，适用于对同一个元素需要判断多种注解的场景。
+     *
+     * @param from            获取注解的某个元素
+     * @param annotationTypes 想要获取的注解类型
+     * @return 获取结果，其中仅能获取请求过的注解类型
+     */
+    @SafeVarargs
+    public static ResolvedAnnotations getAnnotations(AnnotatedElement from, Class<? extends Annotation>... annotationTypes) {
+        final int localMisses = COUNTERS.localMisses();
+        final AnnotationIndex index = getAnnotationIndex(from);
+        final Annotation[] annotations = new Annotation[annotationTypes.length];
+        RuntimeException[] failures = null;
+        for (int i = 0; i < annotationTypes.length; i++) {
+            try {
+                if ((annotations[i] = index.get(annotationTypes[i])) == null) {
+                    COUNTERS.recordNegativeHit(localMisses);
+                }
+            } catch (RuntimeException e) {
+                if (failures == null) {
+                    failures = new RuntimeException[annotationTypes.length];
+                }
+                failures[i] = e;
+            }
+        }
+        return new ResolvedAnnotations(annotationTypes.clone(), annotations, failures);
+    }
+
+
+    /**
+     * 获取某个元素的注解索引。索引会在第一次获取的时候构建并缓存。
+     *
+     * @param from 注解所在元素
+     * @return 注解索引
+     * @see AnnotationIndex
+     */
+    public static AnnotationIndex getAnnotationIndex(AnnotatedElement from) {
+        COUNTERS.recordRequest();
+        if (from instanceof Class) {
+            return classMetadata((Class<?>) from).index(AnnotationUtil::buildIndex);
+        }
+        final Class<?> declaringClass = declaringClassOf(from);
+        if (declaringClass != null) {
+            final AnnotatedElementKey key = ClassMembers.of(declaringClass).keyOf(from);
+            if (key != null) {
+                return classMetadata(declaringClass).memberIndex(key, from, AnnotationUtil::buildIndex);
+            }
+        }
+        return ANNOTATION_CACHE.computeIfAbsent(from, AnnotationUtil::buildIndex);
+    }
+
+
+    /**
+     * 原子的修改某个元素上缓存的注解。
+     * <p>
+     * {@code updater} 接收当前缓存中的注解，并返回修改后的注解（通常通过 {@link AnnotationValueUtil#setValue(Annotation, String, Object)} 得到）。
+     * 修改后的注解会连同此元素的其他注解构建为一个新的 {@link AnnotationIndex}，并以CAS的方式替换缓存中的索引。
+     * 如果替换时索引已经被其他线程修改，则会基于最新的注解重新调用 {@code updater}，因此 {@code updater} 应当没有副作用。
+     * <p>
+     * 已经获取到的注解实例与索引不会被修改，读取时也不需要加锁。
+     * 此元素对此注解类型的 {@link #getInheritedAnnotation(AnnotatedElement, Class) 继承查找记录} 会被移除，
+     * 但是其子类型或重写方法已经记录的查找结果不受影响。
+     * 通过 {@link #cleanCache()} 清除缓存后，修改也会一同被丢弃。
+     *
+     * @param from           注解所在元素
+     * @param annotationType 注解类型
+     * @param updater        修改注解的函数，不能返回null
+     * @return 修改后的注解。如果此元素上不存在此注解则为null，且不会调用 {@code updater}。
+     */
+    public static <T extends Annotation> T updateAnnotation(AnnotatedElement from, Class<T> annotationType, UnaryOperator<T> updater) {
+        for (; ; ) {
+            final AnnotationIndex index = getAnnotationIndex(from);
+            final T annotation = index.get(annotationType);
+            if (annotation == null) {
+                return null;
+            }
+            final T updated = Objects.requireNonNull(updater.apply(annotation), "updated annotation");
+            if (updated.annotationType() != annotationType) {
+                throw new IllegalArgumentException("Updated annotation type " + updated.annotationType().getName() + " is not " + annotationType.getName());
+            }
+            if (replaceIndex(from, annotationType, index, index.with(annotationType, updated))) {
+                return updated;
+            }
+        }
+    }
+
+
+    private static boolean replaceIndex(AnnotatedElement from, Class<? extends Annotation> annotationType, AnnotationIndex expect, AnnotationIndex update) {
+        if (from instanceof Class) {
+            final Class<?> type = (Class<?>) from;
+            final ClassAnnotationMetadata metadata = classMetadata(type);
+            if (metadata.replaceIndex(expect, update)) {
+                metadata.forgetInherited(ClassMembers.of(type).typeKey(), annotationType);
+                return true;
+            }
+            return false;
+        }
+        final Class<?> declaringClass = declaringClassOf(from);
+        if (declaringClass != null) {
+            final AnnotatedElementKey key = ClassMembers.of(declaringClass).keyOf(from);
+            if (key != null) {
+                final ClassAnnotationMetadata metadata = classMetadata(declaringClass);
+                if (metadata.replaceMemberIndex(key, expect, update)) {
+                    metadata.forgetInherited(key, annotationType);
+                    return true;
+                }
+                return false;
+            }
+        }
+        return ANNOTATION_CACHE.replace(from, expect, update);
+    }
+
+
+    /**
+     * 得到一个类型或者其成员的规范标识。对于同一个成员的不同反射实例，得到的标识是同一个对象。
+     *
+     * @param element 类型、方法、字段、构造或参数
+     * @return 规范标识。如果不是这些元素，或者无法确定其所属，得到null。
+     * @see AnnotatedElementKey
+     */
+    public static AnnotatedElementKey getElementKey(AnnotatedElement element) {
+        if (element instanceof Class) {
+            return ClassMembers.of((Class<?>) element).typeKey();
+        }
+        final Class<?> declaringClass = declaringClassOf(element);
+        return declaringClass == null ? null : ClassMembers.of(declaringClass).keyOf(element);
+    }
+
+
+    private static ClassAnnotationMetadata classMetadata(Class<?> type) {
+        ClassAnnotationMetadata metadata = CLASS_METADATA.get(type);
+        if (metadata.generation != metadataGeneration) {
+            CLASS_METADATA.remove(type);
+            metadata = CLASS_METADATA.get(type);
+        }
+        return metadata;
+    }
+
+
+    /**
+     * 得到方法、字段、构造或参数所属的类型。其他元素得到null。
+     */
+    private static Class<?> declaringClassOf(AnnotatedElement element) {
+        if (element instanceof Executable || element instanceof Field) {
+            return ((Member) element).getDeclaringClass();
+        }
+        if (element instanceof Parameter) {
+            return ((Parameter) element).getDeclaringExecutable().getDeclaringClass();
+        }
+        return null;
+    }
+
+
+    /**
+     * 在 {@link ForkJoinPool#commonPool()} 中并行的预加载一批类型的注解信息。
+     *
+     * @param types 需要预加载的类型
+     * @return 全部加载完成后完成的 {@link CompletableFuture}
+     * @see #preload(Collection, Executor)
+     */
+    public static CompletableFuture<Void> preload(Collection<? extends Class<?>> types) {
+        return preload(types, ForkJoinPool.commonPool());
+    }
+
+
+    /**
+     * 并行的预加载一批类型的注解信息，包括类型本身与其声明的方法、字段、构造以及它们的参数。
+     * <p>
+     * 类型会被分为若干批次提交至 {@code executor} 中执行，调用者可以在此期间进行其他的初始化工作。
+     * 预加载与正常的获取共享同一份缓存，并发访问是安全的。
+     * 某个元素的注解解析失败（包括 {@link RuntimeException}、{@link LinkageError} 与 {@link AnnotationFormatError}，
+     * 例如缺少注解或成员签名中的类型）并不会导致整体失败，此元素不会被缓存，异常会在真正获取此注解的时候抛出。
+     * 其他的 {@link Error} 会使返回的 {@link CompletableFuture} 异常完成。
+     *
+     * @param types    需要预加载的类型
+     * @param executor 执行预加载的执行器
+     * @return 全部加载完成后完成的 {@link CompletableFuture}
+     */
+    public static CompletableFuture<Void> preload(Collection<? extends Class<?>> types, Executor executor) {
+        final List<Class<?>> list = new ArrayList<>(types);
+        if (list.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        final int batches = Math.min(list.size(), Runtime.getRuntime().availableProcessors() * 4);
+        final int batchSize = (list.size() + batches - 1) / batches;
+        final List<CompletableFuture<Void>> futures = new ArrayList<>(batches);
+        for (int from = 0; from < list.size(); from += batchSize) {
+            final List<Class<?>> batch = list.subList(from, Math.min(from + batchSize, list.size()));
+            futures.add(CompletableFuture.runAsync(() -> batch.forEach(AnnotationUtil::preload0), executor));
+        }
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]));
+    }
+
+
+    private static void preload0(Class<?> type) {
+        if (!preloadElement(type)) {
+            return;
+        }
+        try {
+            ClassMembers.of(type).forEachMember(AnnotationUtil::preloadElement);
+        } catch (RuntimeException | LinkageError | AnnotationFormatError ignored) {
+            // 无法读取成员，例如缺少成员签名中的类型。获取成员时会再次抛出。
+        }
+    }
+
+
+    /**
+     * 预加载某个元素的注解索引。失败时不会记录任何内容，异常会在真正获取时再次抛出。
+     *
+     * @return 是否加载成功
+     */
+    private static boolean preloadElement(AnnotatedElement element) {
+        try {
+            getAnnotationIndex(element);
+            return true;
+        } catch (RuntimeException | LinkageError | AnnotationFormatError ignored) {
+            return false;
+        }
+    }
+
+
+    /**
+     * 构建一个元素的注解索引。
+     * <p>
+     * 首先收集所有可能出现在此元素上的注解类型：直接存在的注解、注解上（非java原生注解的）的元注解、以及这些注解对应的可重复注解的容器类型，
+     * 然后对每个类型进行一次完整的解析并记录结果。
+     * 不在此集合中的类型是不可能被解析到的，因此索引中不存在的类型即为不存在的注解。
+     *
+     * @param from 注解所在元素
+     * @return 注解索引
+     */
+    private static AnnotationIndex buildIndex(AnnotatedElement from) {
+        if (!COUNTERS.isEnabled()) {
+            return buildIndex0(from);
+        }
+        final long start = System.nanoTime();
+        try {
+            return buildIndex0(from);
+        } finally {
+            COUNTERS.recordMiss(System.nanoTime() - start);
+        }
+    }
+
+
+    private static AnnotationIndex buildIndex0(AnnotatedElement from) {
+        final AnnotationSnapshot snapshot = AnnotationUtil.snapshot;
+        if (snapshot != null) {
+            final AnnotationIndex index = snapshot.find(from);
+            if (index != null) {
+                return index;
+            }
+        }
+
+        final Set<Class<? extends Annotation>> candidates = new LinkedHashSet<>();
+        collectCandidateTypes(from.getAnnotations(), candidates, new HashSet<>());
+        if (candidates.isEmpty()) {
+            return AnnotationIndex.EMPTY;
+        }
+
+        final Map<Class<? extends Annotation>, Annotation> annotations = new HashMap<>(candidates.size() * 2);
+        Map<Class<? extends Annotation>, RuntimeException> failures = Collections.emptyMap();
+        for (Class<? extends Annotation> candidate : candidates) {
+            try {
+                final Annotation annotation = resolveAnnotation(null, from, candidate);
+                if (annotation != null) {
+                    annotations.put(candidate, annotation);
+                }
+            } catch (RuntimeException e) {
+                if (failures.isEmpty()) {
+                    failures = new HashMap<>(4);
+                }
+                failures.put(candidate, e);
+            }
+        }
+
+        return new AnnotationIndex(annotations, failures);
+    }
+
+
+    /**
+     * 递归收集注解类型。java原生注解不会继续向下寻找。
+     *
+     * @param annotations 注解列表
+     * @param candidates  收集结果
+     * @param visited     已经寻找过其元注解的注解类型
+     */
+    private static void collectCandidateTypes(Annotation[] annotations, Set<Class<? extends Annotation>> candidates, Set<Class<? extends Annotation>> visited) {
+        for (Annotation annotation : annotations) {
+            final Class<? extends Annotation> type = annotation.annotationType();
+            candidates.add(type);
+            // 可重复注解的容器类型
+            final Repeatable repeatable = type.getAnnotation(Repeatable.class);
+            if (repeatable != null) {
+                candidates.add(repeatable.value());
+            }
+            if (!JAVA_ANNOTATION_PACKAGE.equals(type.getPackage()) && visited.add(type)) {
+                collectCandidateTypes(type.getAnnotations(), candidates, visited);
+            }
+        }
     }
 
 
@@ -144,18 +575,7 @@ public class AnnotationUtil {
      * @return 获取到的第一个注解对象
      */
     @SafeVarargs
-    private static <T extends Annotation> T getAnnotation(Annotation fromInstance, AnnotatedElement from, Class<T> annotationType, Class<T>... ignored) {
-        // 首先尝试获取缓存
-        T cache = getCache(from, annotationType);
-        if (cache != null) {
-            return cache;
-        }
-
-
-        if (isNull(from, annotationType)) {
-            return null;
-        }
-
+    private static <T extends Annotation> T resolveAnnotation(Annotation fromInstance, AnnotatedElement from, Class<T> annotationType, Class<T>... ignored) {
         // 可重复注解
 
 
@@ -168,9 +588,9 @@ public class AnnotationUtil {
         if (MixRepeatableAnnotations.class.equals(annotationType)) {
             mix = false;
         } else {
-            mix = containsAnnotation(annotationType, MixRepeatableAnnotations.class);
+            mix = MIX_REPEATABLE.get(annotationType);
         }
-        Class<? extends Annotation> childrenValueAnnotateType;
+        RepeatableContainer container;
         //如果存在直接返回，否则查询
         if (annotation != null) {
             // 首先将其转化为对应的代理实例
@@ -178,30 +598,17 @@ public class AnnotationUtil {
 
             if (mix) {
                 // 如果需要混合，看看是否是可重复注解。
-                childrenValueAnnotateType = repeatableChildType(annotationType);
-                if (childrenValueAnnotateType != null) {
+                container = RepeatableContainer.of(annotationType);
+                if (container != null) {
                     // repeatable
                     // 得到annotation的value值，里面是真正的数组
-                    Object value = getAnnotationProperty(
-                            annotation,
-                            "value",
-                            rt -> rt.isArray() && rt.getComponentType().equals(childrenValueAnnotateType)
-                    );
-                    if (value != null) {
-                        Annotation[] childrenArray = (Annotation[]) value;
+                    Annotation[] childrenArray = container.children(annotation);
+                    if (childrenArray != null) {
                         // 有value, 获取额外的annotation，合并然后返回
-                        List<Annotation> annotationList = repeatChildrenFromAnnotationArray(from, childrenValueAnnotateType, from.getAnnotations());
-                        annotationList.addAll(0, Arrays.asList(childrenArray));
-
-                        // 查询完了，如果存在内容，构建参数
+                        List<Annotation> annotationList = repeatChildrenFromAnnotationArray(from, container.getChildType(), from.getAnnotations());
                         if (!annotationList.isEmpty()) {
-                            final Object childrenValueAnnotateArray = Array.newInstance(childrenValueAnnotateType, annotationList.size());
-                            for (int i = 0; i < annotationList.size(); i++) {
-                                Array.set(childrenValueAnnotateArray, i, annotationList.get(i));
-                            }
-                            annotation = AnnotationValueUtil.setValue(annotation, "value", childrenValueAnnotateArray);
+                            annotation = AnnotationValueUtil.setValue(annotation, "value", container.merge(childrenArray, annotationList));
                         }
-
                     }
 
                 }
@@ -209,7 +616,7 @@ public class AnnotationUtil {
             }
             // 如果不需要混合, 不管如何都直接返回
 
-            return mappingAndSaveCache(fromInstance, from, annotation);
+            return mappingIfNecessary(fromInstance, from, annotation);
         }
 
 
@@ -231,11 +638,9 @@ public class AnnotationUtil {
         // 判断是否为某可重复注解的复数注解
 
         // 如果是可重复型, 此为其子类型
-        // Class<? extends Annotation> childrenValueAnnotateType = null;
+        container = RepeatableContainer.of(annotationType);
 
-        childrenValueAnnotateType = repeatableChildType(annotationType);
-
-        boolean repeatable = childrenValueAnnotateType != null;
+        boolean repeatable = container != null;
 
         Annotation[] annotations = from.getAnnotations();
 
@@ -243,28 +648,18 @@ public class AnnotationUtil {
             // 不是可重复注解的父类类型, 递归查询
             annotation = annotateAble ? getAnnotationFromArrays(fromInstance, annotations, annotationType, ignored) : null;
         } else {
-            List<Annotation> annotationList = repeatChildrenFromAnnotationArray(from, childrenValueAnnotateType, annotations);
+            List<Annotation> annotationList = repeatChildrenFromAnnotationArray(from, container.getChildType(), annotations);
 
             // 查询完了，如果存在内容，构建参数
             if (!annotationList.isEmpty()) {
-                final Object childrenValueAnnotateArray = Array.newInstance(childrenValueAnnotateType, annotationList.size());
-                for (int i = 0; i < annotationList.size(); i++) {
-                    Array.set(childrenValueAnnotateArray, i, annotationList.get(i));
-                }
-                // AnnotationValueUtil.setValue(annotation, "value", childrenValueAnnotateArray);
-
-                Map<String, Object> map = new HashMap<>(1);
-                map.put("value", childrenValueAnnotateArray);
-                annotation = AnnotationProxyUtil.proxy(annotationType, map);
+                annotation = annotationType.cast(container.newContainer(annotationList));
             }
         }
 
 
-        // 如果最终不是null，计入缓存
+        // 如果最终不是null，进行映射
         if (annotation != null) {
-            annotation = mappingAndSaveCache(fromInstance, from, annotation);
-        } else {
-            nullCache(from, annotationType);
+            annotation = mappingIfNecessary(fromInstance, from, annotation);
         }
 
         return annotation;
@@ -326,7 +721,7 @@ public class AnnotationUtil {
         //如果浅层查询还是没有，递归查询
 
         for (Annotation a : annotations) {
-            T annotationGet = getAnnotation(a, a.annotationType(), annotationType, newIgnored);
+            T annotationGet = resolveAnnotation(a, a.annotationType(), annotationType, newIgnored);
             if (annotationGet != null) {
                 return annotationGet;
             }
@@ -337,147 +732,83 @@ public class AnnotationUtil {
     }
 
     /**
-     * 从缓存中获取缓存注解
-     *
-     * @param from          来源
-     * @param annotatedType 注解类型
-     * @return 注解缓存，可能为null
+     * 执行注解映射
      */
-    @SuppressWarnings("unchecked")
-    private static <T extends Annotation> T getCache(AnnotatedElement from, Class<T> annotatedType) {
-        Map<Class<? extends Annotation>, Annotation> cacheMap = ANNOTATION_CACHE.get(from);
-        if (cacheMap != null) {
-            return (T) cacheMap.get(annotatedType);
-        }
-        // 找不到，返回null
-        return null;
+    private static <T extends Annotation> T mapping(Annotation from, T to) {
+        return AnnotationMappingPlan.of(from.annotationType(), to.annotationType()).apply(from, to);
     }
 
-    /**
-     * 记录一个得不到的缓存
-     *
-     * @param from          {@link AnnotatedElement}
-     * @param annotatedType annotation class
-     */
-    private static <T extends Annotation> void nullCache(AnnotatedElement from, Class<T> annotatedType) {
-        final Set<Class<? extends Annotation>> classes = NULL_CACHE.computeIfAbsent(from, k -> new LinkedHashSet<>());
-        classes.add(annotatedType);
-    }
 
     /**
-     * 判断是否获取不到
+     * 获取任意注解的任意参数，如果有的话。
+     * <p>
+     * 参数的访问方式会按照注解类型缓存，不会每次都进行反射查找。
      *
-     * @param from          {@link AnnotatedElement}
-     * @param annotatedType annotation class
-     */
-    private static <T extends Annotation> boolean isNull(AnnotatedElement from, Class<T> annotatedType) {
-        final Set<Class<? extends Annotation>> classes = NULL_CACHE.get(from);
-        if (classes == null || classes.isEmpty()) {
-            return false;
-        }
-        return classes.contains(annotatedType);
-    }
-
-
-    /**
-     * 记录一条缓存记录。
+     * @param annotation      注解
+     * @param propertyName    参数名
+     * @param returnTypeCheck 验证其返回值类型
+     * @return real properties value or null.
      */
-    private static void saveCache(AnnotatedElement from, Annotation annotation) {
-        Map<Class<? extends Annotation>, Annotation> cacheMap;
-        synchronized (ANNOTATION_CACHE) {
-            // 如果为空，新建一个并保存
-            cacheMap = ANNOTATION_CACHE.computeIfAbsent(from, k -> new LinkedHashMap<>());
-            // 记录这个注解
-            cacheMap.put(annotation.annotationType(), annotation);
-        }
-    }
-
+    public static Object getAnnotationProperty(Annotation annotation, String propertyName, Predicate<Class<?>> returnTypeCheck) {
+        Objects.requireNonNull(propertyName, "Parameter propertyName cannot be null.");
 
-    /**
-     * 执行注解映射
-     */
-    private static <T extends Annotation> T mapping(Annotation from, T to) {
-        final Class<? extends Annotation> fromAnnotationType = from.annotationType();
-        final Method[] methods = fromAnnotationType.getMethods();
-        final Map<String, Object> params = new HashMap<>();
-        final AnnotateMapping classAnnotateMapping = fromAnnotationType.getAnnotation(AnnotateMapping.class);
-        AnnotateMapping annotateMapping;
-        //noinspection unchecked
-        final Class<T> toType = (Class<T>) to.annotationType();
-        for (Method method : methods) {
-            if (OBJECT_METHODS.contains(method.getName())) {
-                continue;
-            }
-            annotateMapping = method.getAnnotation(AnnotateMapping.class);
-            if (annotateMapping == null) {
-                annotateMapping = classAnnotateMapping;
-            }
-            if (annotateMapping != null) {
-                if (annotateMapping.value().equals(toType)) {
-                    String name = annotateMapping.name();
-                    if (name.length() == 0) {
-                        name = method.getName();
-                    }
-                    try {
-                        // if (!method.canAccess()) {
-                        method.setAccessible(true);
-                        // }
-
-                        Object value = method.invoke(from);
-                        params.put(name, value);
-                    } catch (IllegalArgumentException | IllegalAccessException | InvocationTargetException e) {
-                        throw new RuntimeException("cannot map " + name + " for " + method, e);
-                    }
-                }
-            }
+        final AnnotationLayout layout = AnnotationLayout.of(annotation.annotationType());
+        final int slot = layout.slot(propertyName);
+        if (slot < 0 || !returnTypeCheck.test(layout.getMember(slot).getReturnType())) {
+            return null;
         }
-        return AnnotationProxyUtil.proxy(toType, to, params);
+        return readProperty(layout, annotation, slot);
     }
 
 
     /**
      * 获取任意注解的任意参数，如果有的话。
      *
-     * @param annotation      注解
-     * @param propertyName    参数名
-     * @param returnTypeCheck 验证其返回值类型
+     * @param annotation   注解
+     * @param propertyName 参数名
+     * @param propertyType 参数类型。参数的返回值类型需要是此类型或其子类型，基本数据类型可以使用其包装类型。
      * @return real properties value or null.
      */
-    public static Object getAnnotationProperty(Annotation annotation, String propertyName, Predicate<Class<?>> returnTypeCheck) {
+    @SuppressWarnings("unchecked")
+    public static <R> R getAnnotationProperty(Annotation annotation, String propertyName, Class<R> propertyType) {
         Objects.requireNonNull(propertyName, "Parameter propertyName cannot be null.");
 
-        if (annotation instanceof AnnotationInvocationHandler) {
-            return ((AnnotationInvocationHandler) annotation).get(propertyName);
+        final AnnotationLayout layout = AnnotationLayout.of(annotation.annotationType());
+        final int slot = layout.slot(propertyName);
+        if (slot < 0) {
+            return null;
+        }
+        Class<?> returnType = layout.getMember(slot).getReturnType();
+        if (returnType.isPrimitive() && !propertyType.isPrimitive()) {
+            returnType = MethodType.methodType(returnType).wrap().returnType();
         }
+        if (!propertyType.isAssignableFrom(returnType)) {
+            return null;
+        }
+        return (R) readProperty(layout, annotation, slot);
+    }
 
+
+    private static Object readProperty(AnnotationLayout layout, Annotation annotation, int slot) {
         try {
-            Class<? extends Annotation> annotationType = annotation.annotationType();
-            Method[] methods = annotationType.getMethods();
-            for (Method method : methods) {
-                if (method.getName().equals(propertyName)) {
-                    if (returnTypeCheck.test(method.getReturnType())) {
-                        return method.invoke(annotation);
-                    } else {
-                        return null;
-                    }
-                }
-            }
-        } catch (InvocationTargetException | IllegalAccessException ignore) {
+            return layout.read(annotation, slot);
+        } catch (Error e) {
+            throw e;
+        } catch (Throwable ignore) {
+            // 同反射调用时的InvocationTargetException
+            return null;
         }
-        return null;
-
     }
 
 
     /**
-     * 进行注解值映射，并缓存，返回
+     * 如果来源是一个注解，进行注解值映射并返回映射后的新实例。
      */
-    private static <T extends Annotation> T mappingAndSaveCache(Annotation fromInstance, AnnotatedElement from, T annotation) {
+    private static <T extends Annotation> T mappingIfNecessary(Annotation fromInstance, AnnotatedElement from, T annotation) {
         // 如果from是一个注解, 则构建一个新的annotation实例
         if (fromInstance != null && from instanceof Class && ((Class<?>) from).isAnnotation()) {
             return mapping(fromInstance, annotation);
         } else {
-            saveCache(from, annotation);
             return annotation;
         }
     }
@@ -487,63 +818,102 @@ public class AnnotationUtil {
      * 清除缓存
      */
     public static void cleanCache() {
+        classIndexes = new LongAdder();
+        metadataGeneration++;
         ANNOTATION_CACHE.clear();
-        NULL_CACHE.clear();
     }
 
 
     /**
      * 重置annotation lru map的最大值。
-     *
+     * <p>
+     * 类型与其成员的注解信息不受此容量的限制。
      */
     public static void setAnnotationCacheCapacity(int capacity) {
         ANNOTATION_CACHE.setCapacity(capacity);
     }
 
     /**
-     * 重置null annotation lru map的最大值。
+     * 设置注解索引的快照。之后构建注解索引的时候会优先从快照中还原，快照中不存在的元素会进行正常的解析。
+     * <p>
+     * 已经缓存的注解索引不受影响，如有需要可以在设置后调用 {@link #cleanCache()}。
      *
+     * @param snapshot 快照，为null则不再使用快照。
+     * @see AnnotationSnapshot
      */
-    public static void setNullAnnotationCacheCapacity(int capacity) {
-        NULL_CACHE.setCapacity(capacity);
+    public static void setSnapshot(AnnotationSnapshot snapshot) {
+        AnnotationUtil.snapshot = snapshot;
     }
 
 
     /**
-     * 得到可重复注解的子类型。 如果为非可重复类型，得到null，
+     * 开启或关闭注解缓存的统计。统计默认关闭。
      *
-     * @param annotationType 疑似可重复注解的类型。
-     * @param <T>            Annotation
-     * @return childAnnotationType
+     * @see #getCacheStats()
      */
-    private static <T extends Annotation> Class<? extends Annotation> repeatableChildType(Class<T> annotationType) {
-        // 判断是否为某可重复注解的复数注解
-        // 如果是可重复型, 此为其子类型
-        Class<? extends Annotation> childValueAnnotateType = null;
+    public static void setStatisticsEnabled(boolean enabled) {
+        COUNTERS.setEnabled(enabled);
+    }
+
+    public static boolean isStatisticsEnabled() {
+        return COUNTERS.isEnabled();
+    }
+
+
+    /**
+     * 得到当前注解缓存统计信息的快照。
+     * 其中的数量包括依附于类型保存的注解索引与后备缓存中的注解索引，参考 {@link AnnotationCacheStats}。
+     *
+     * @see #setStatisticsEnabled(boolean)
+     */
+    public static AnnotationCacheStats getCacheStats() {
+        return COUNTERS.snapshot(classIndexes.sum(), ANNOTATION_CACHE.size(), ANNOTATION_CACHE.getCapacity());
+    }
+
+
+    /**
+     * 重置注解缓存的统计计数。
+     */
+    public static void resetCacheStats() {
+        COUNTERS.reset();
+    }
+
+
+    /**
+     * 将注解缓存的统计信息注册到平台的 {@link MBeanServer} 中，名称为 {@value #STATS_MBEAN_NAME}。
+     * 注册不会自动开启统计。重复注册不会产生任何效果。
+     *
+     * @return 注册的名称
+     * @see AnnotationCacheStatsMXBean
+     */
+    public static ObjectName registerCacheStatsMBean() {
         try {
-            Method valueMethod = annotationType.getMethod("value");
-            final Class<?> valueMethodReturnType = valueMethod.getReturnType();
-            if (valueMethodReturnType.isArray()) {
-                final Class<?> valueArrayType = valueMethodReturnType.getComponentType();
-                if (valueArrayType.isAnnotation()) {
-                    Class<? extends Annotation> valueArrayTypeForAnnotation = (Class<? extends Annotation>) valueArrayType;
-                    // is annotation
-                    Repeatable repeatableAnnotate = valueArrayTypeForAnnotation.getAnnotation(Repeatable.class);
-                    // 如果value的返回值
-                    if (repeatableAnnotate != null && repeatableAnnotate.value().equals(annotationType)) {
-                        childValueAnnotateType = valueArrayTypeForAnnotation;
-                    }
+            final ObjectName name = new ObjectName(STATS_MBEAN_NAME);
+            final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            synchronized (COUNTERS) {
+                if (!server.isRegistered(name)) {
+                    server.registerMBean(new CacheStatsMXBean(), name);
                 }
             }
-        } catch (NoSuchMethodException ignored) {
+            return name;
+        } catch (JMException e) {
+            throw new IllegalStateException("Cannot register annotation cache stats MBean.", e);
         }
+    }
+
 
-        return childValueAnnotateType;
+    /**
+     * 重置null annotation lru map的最大值。
+     *
+     * @deprecated 注解索引 {@link AnnotationIndex} 中已经包含了不存在的注解信息，不再存在单独的null缓存。此方法不会产生任何效果。
+     */
+    @Deprecated
+    public static void setNullAnnotationCacheCapacity(int capacity) {
     }
 
 
     private static <T extends Annotation> List<Annotation> repeatChildrenFromAnnotationArray(AnnotatedElement from, Class<T> childrenValueAnnotateType, Annotation[] annotations) {
-        List<Annotation> annotationList = new ArrayList<>();
+        List<Annotation> annotationList = new ArrayList<>(annotations.length + 1);
 
         // 先尝试直接获取
         Annotation getForm = from.getAnnotation(childrenValueAnnotateType);
@@ -553,7 +923,7 @@ public class AnnotationUtil {
 
         // 是可重复注解的父类类型, 得到他对应的子类注解类型.
         for (Annotation annotate : annotations) {
-            final Annotation getAnnotation = getAnnotation(annotate, annotate.annotationType(), childrenValueAnnotateType);
+            final Annotation getAnnotation = resolveAnnotation(annotate, annotate.annotationType(), childrenValueAnnotateType);
             if (getAnnotation != null) {
                 annotationList.add(getAnnotation);
             }
@@ -562,4 +932,78 @@ public class AnnotationUtil {
         return annotationList;
     }
 
+
+
+    private static final class CacheStatsMXBean implements AnnotationCacheStatsMXBean {
+        @Override
+        public boolean isEnabled() {
+            return isStatisticsEnabled();
+        }
+
+        @Override
+        public void setEnabled(boolean enabled) {
+            setStatisticsEnabled(enabled);
+        }
+
+        @Override
+        public long getRequestCount() {
+            return getCacheStats().getRequestCount();
+        }
+
+        @Override
+        public long getHitCount() {
+            return getCacheStats().getHitCount();
+        }
+
+        @Override
+        public long getMissCount() {
+            return getCacheStats().getMissCount();
+        }
+
+        @Override
+        public long getNegativeHitCount() {
+            return getCacheStats().getNegativeHitCount();
+        }
+
+        @Override
+        public long getEvictionCount() {
+            return getCacheStats().getEvictionCount();
+        }
+
+        @Override
+        public double getHitRate() {
+            return getCacheStats().getHitRate();
+        }
+
+        @Override
+        public double getAverageMissTime() {
+            return getCacheStats().getAverageMissTime();
+        }
+
+        @Override
+        public long getSize() {
+            return classIndexes.sum() + ANNOTATION_CACHE.size();
+        }
+
+        @Override
+        public long getClassIndexCount() {
+            return classIndexes.sum();
+        }
+
+        @Override
+        public int getFallbackSize() {
+            return ANNOTATION_CACHE.size();
+        }
+
+        @Override
+        public int getFallbackCapacity() {
+            return ANNOTATION_CACHE.getCapacity();
+        }
+
+        @Override
+        public void reset() {
+            resetCacheStats();
+        }
+    }
+
 }
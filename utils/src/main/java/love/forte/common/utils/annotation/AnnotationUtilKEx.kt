@@ -14,7 +14,10 @@
 package love.forte.common.utils.annotation
 
 import java.lang.reflect.AnnotatedElement
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.ConcurrentMap
 import kotlin.reflect.*
+import kotlin.reflect.full.instanceParameter
 import kotlin.reflect.jvm.javaConstructor
 import kotlin.reflect.jvm.javaField
 import kotlin.reflect.jvm.javaGetter
@@ -25,11 +28,7 @@ import kotlin.reflect.jvm.javaMethod
  * 针对kotlin下的兼容
  */
 public fun <T: Annotation> getAnnotation(callAble: KCallable<*>, type: KClass<T>) : T? {
-    val annotatedElement: AnnotatedElement = when(callAble) {
-        is KFunction -> callAble.javaMethod ?: callAble.javaConstructor ?: return null
-        is KProperty -> callAble.javaField ?: callAble.javaGetter ?: return null
-        else -> return null
-    }
+    val annotatedElement: AnnotatedElement = javaAnnotatedElement(callAble) ?: return null
     return AnnotationUtil.getAnnotation(
         annotatedElement,
         type.java
@@ -37,66 +36,56 @@ public fun <T: Annotation> getAnnotation(callAble: KCallable<*>, type: KClass<T>
 }
 
 /**
- * 针对kotlin下的兼容
+ * 针对kotlin下的兼容。
+ *
+ * 直接通过 [KClass.java] 获取，与java下的获取一致。
  */
 public fun <T: Annotation> getAnnotation(kClass: KClass<*>, type: KClass<T>) : T? {
     return AnnotationUtil.getAnnotation(
-        K2JAnnotatedElement(kClass),
+        kClass.java,
         type.java
     )
 }
 
 
-
-private data class K2JAnnotatedElement(private val kAnnotated: KAnnotatedElement) : AnnotatedElement {
-    /**
-     * Returns this element's annotation for the specified type if
-     * such an annotation is *present*, else null.
-     *
-     * @param <T> the type of the annotation to query for and return if present
-     * @param annotationClass the Class object corresponding to the
-     * annotation type
-     * @return this element's annotation for the specified annotation type if
-     * present on this element, else null
-     * @throws NullPointerException if the given annotation class is null
-     * @since 1.5
-    </T> */
-    override fun <T : Annotation> getAnnotation(annotationClass: Class<T>): T? {
-        @Suppress("UNCHECKED_CAST")
-        return kAnnotated.annotations.find {
-            it::annotationClass.get().java == annotationClass
-        } as? T
+/**
+ * 得到一个 [KCallable] 所对应的java元素：函数对应其方法或构造，属性对应其字段，没有字段的属性对应其getter。
+ *
+ * 对于类中的成员，结果会记录在其所属类型上，之后的获取不再需要经过kotlin反射。
+ *
+ * @return 对应的java元素，不存在则为null。
+ */
+public fun javaAnnotatedElement(callAble: KCallable<*>): AnnotatedElement? {
+    val owner: Class<*> = (callAble.instanceParameter?.type?.classifier as? KClass<*>)?.java
+        ?: return resolveJavaAnnotatedElement(callAble)
+    val elements = K_CALLABLE_ELEMENTS.get(owner)
+    val element = elements[callAble] ?: (resolveJavaAnnotatedElement(callAble) ?: NoJavaElement).let {
+        elements.putIfAbsent(callAble, it) ?: it
     }
+    return if (element === NoJavaElement) null else element
+}
 
-    /**
-     * Returns annotations that are *present* on this element.
-     *
-     * If there are no annotations *present* on this element, the return
-     * value is an array of length 0.
-     *
-     * The caller of this method is free to modify the returned array; it will
-     * have no effect on the arrays returned to other callers.
-     *
-     * @return annotations present on this element
-     * @since 1.5
-     */
-    override fun getAnnotations(): Array<Annotation> {
-        return kAnnotated.annotations.toTypedArray()
-    }
 
-    /**
-     * Returns annotations that are *directly present* on this element.
-     * This method ignores inherited annotations.
-     *
-     * If there are no annotations *directly present* on this element,
-     * the return value is an array of length 0.
-     *
-     * The caller of this method is free to modify the returned array; it will
-     * have no effect on the arrays returned to other callers.
-     *
-     * @return annotations directly present on this element
-     * @since 1.5
-     */
-    override fun getDeclaredAnnotations(): Array<Annotation> = annotations
+private fun resolveJavaAnnotatedElement(callAble: KCallable<*>): AnnotatedElement? = when(callAble) {
+    is KFunction -> callAble.javaMethod ?: callAble.javaConstructor
+    is KProperty -> callAble.javaField ?: callAble.javaGetter
+    else -> null
+}
+
 
+/**
+ * 类型中的成员与其java元素，保存在所属类型上。
+ */
+private val K_CALLABLE_ELEMENTS = object : ClassValue<ConcurrentMap<KCallable<*>, AnnotatedElement>>() {
+    override fun computeValue(type: Class<*>): ConcurrentMap<KCallable<*>, AnnotatedElement> = ConcurrentHashMap()
+}
+
+
+/**
+ * 没有对应java元素的标记。
+ */
+private object NoJavaElement : AnnotatedElement {
+    override fun <T : Annotation> getAnnotation(annotationClass: Class<T>): T? = null
+    override fun getAnnotations(): Array<Annotation> = emptyArray()
+    override fun getDeclaredAnnotations(): Array<Annotation> = emptyArray()
 }
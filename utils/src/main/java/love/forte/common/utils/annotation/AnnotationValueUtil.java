@@ -16,11 +16,9 @@ import java.lang.annotation.Annotation;
 import java.lang.annotation.AnnotationTypeMismatchException;
 import java.lang.annotation.IncompleteAnnotationException;
 import java.lang.reflect.Field;
-import java.lang.reflect.InvocationHandler;
-import java.lang.reflect.Proxy;
 import java.security.AccessController;
 import java.security.PrivilegedAction;
-import java.util.LinkedHashMap;
+import java.util.Collections;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Consumer;
@@ -28,7 +26,10 @@ import java.util.function.Consumer;
 /**
  * 操作注解值得工具类
  *
- * 需要注意的是，注解的实例仅存在一个，因此当你修改了注解的值，则全局生效。
+ * 注解实例是不可变的，修改注解的值时不会影响原本的实例，而是会得到一个新的实例。
+ * 新实例会复制原实例的值数组，其中未修改的成员值在新旧实例之间共享。
+ * 因此，持有原实例的其他线程不会读取到修改了一半的值，缓存中的注解也不会被修改。
+ * 如果需要修改 {@link AnnotationUtil} 中缓存的注解，参考 {@link AnnotationUtil#updateAnnotation(java.lang.reflect.AnnotatedElement, Class, java.util.function.UnaryOperator)}。
  *
  * @author <a href="https://github.com/ForteScarlet"> ForteScarlet </a>
  */
@@ -37,78 +38,80 @@ public class AnnotationValueUtil {
     private static final Map<Class<? extends Annotation>, Field> FIELD_CACHE = new ConcurrentHashMap<>();
 
     /**
-     * 获取注解对应得value map。只有正常的注解才能够获取到。
+     * 获取注解对应的 {@link AnnotationInvocationHandler}。
+     * 对于经由其代理的注解直接得到其handler，否则得到一个以此注解为基础注解的新handler。
      *
      * @param annotation 注解
-     * @return value map
-     * @see sun.reflect.annotation.AnnotationInvocationHandler#memberValues
+     * @return handler
      */
-    @SuppressWarnings("JavadocReference")
-    private static <T extends Annotation> Map<String, Object> getValueMap(T annotation) {
-        if (annotation instanceof AnnotationInvocationHandler) {
-            return ((AnnotationInvocationHandler) annotation).getMemberValuesMap();
+    private static <T extends Annotation> AnnotationInvocationHandler getHandler(T annotation) {
+        final AnnotationInvocationHandler handler = AnnotationInvocationHandler.handlerOf(annotation);
+        if (handler != null) {
+            return handler;
         }
-
-        InvocationHandler ih = Proxy.getInvocationHandler(annotation);
-
-        if (ih instanceof AnnotationInvocationHandler) {
-            return ((AnnotationInvocationHandler) ih).getMemberValuesMap();
-        }
-
-        throw new IllegalStateException("Only Annotation instances represented by love.forte.common.utils.annotation.AnnotationInvocationHandler can get dynamic ValueMap.");
-
-
+        return new AnnotationInvocationHandler(annotation.annotationType(), Collections.emptyMap(), annotation);
     }
 
     /**
-     * 修改Annotation的值
+     * 修改Annotation的值，得到修改后的新实例。原实例不会被修改。
      *
      * @param annotation       注解
-     * @param valueMapConsumer 注解的值
+     * @param valueMapConsumer 注解的值。此Map中仅能存入注解中存在的成员，存入null或移除则会恢复为原始注解中的值（没有原始注解时为默认值）。
+     * @return 修改后的新实例
      */
     @org.jetbrains.annotations.Contract(pure = true)
     public static <T extends Annotation> T setValue(T annotation, Consumer<Map<String, Object>> valueMapConsumer) {
-        T checkedAnnotation = checkAnnotationProxy(annotation);
-        Map<String, Object> valueMap = getValueMap(checkedAnnotation);
-        valueMapConsumer.accept(valueMap);
-        return checkedAnnotation;
+        final AnnotationInvocationHandler handler = getHandler(annotation);
+        final Object[] values = handler.values().clone();
+        valueMapConsumer.accept(handler.stagingValuesMap(values));
+        return newInstance(annotation, handler.derive(values));
     }
 
     /**
-     * 修改Annotation的值
+     * 修改Annotation的值，得到修改后的新实例。原实例不会被修改。
      *
      * @param annotation 注解
      * @param key        注解的key
-     * @param value      要修改的值
+     * @param value      要修改的值。为null则恢复为原始注解中的值（没有原始注解时为默认值）。
+     * @return 修改后的新实例
+     * @throws IllegalArgumentException 如果注解中不存在此成员
      */
     @org.jetbrains.annotations.Contract(pure = true)
     public static <T extends Annotation> T setValue(T annotation, String key, Object value) {
-        T checkedAnnotation = checkAnnotationProxy(annotation);
-        getValueMap(checkedAnnotation).put(key, value);
-        return checkedAnnotation;
+        final AnnotationInvocationHandler handler = getHandler(annotation);
+        final int slot = handler.slot(key);
+        if (slot < 0) {
+            throw new IllegalArgumentException("No member named '" + key + "' in annotation " + annotation.annotationType().getName());
+        }
+        final Object[] values = handler.values().clone();
+        values[slot] = value;
+        return newInstance(annotation, handler.derive(values));
+    }
+
+
+    @SuppressWarnings("unchecked")
+    private static <T extends Annotation> T newInstance(T annotation, AnnotationInvocationHandler handler) {
+        return (T) AnnotationProxyUtil.instance(annotation.annotationType(), handler);
     }
 
 
     /**
-     * 如果这是一个普通的annotation，将其转化为经由 {@link AnnotationInvocationHandler} 代理的annotation。
+     * 如果这是一个普通的annotation，将其转化为一个由此工具构建的注解实例：
+     * 优先为生成的实现类（{@link GeneratedAnnotation}），否则为经由 {@link AnnotationInvocationHandler} 代理的annotation。
      *
      * @param annotation 注解实例
      */
     static <T extends Annotation> T checkAnnotationProxy(T annotation) {
-        if (annotation instanceof AnnotationInvocationHandler) {
-            return annotation;
-        }
-
-        InvocationHandler ih = Proxy.getInvocationHandler(annotation);
-
-        if (ih instanceof AnnotationInvocationHandler) {
+        if (annotation instanceof GeneratedAnnotation || AnnotationInvocationHandler.handlerOf(annotation) != null) {
             return annotation;
         }
+        return wrap(annotation);
+    }
 
-        Annotation proxyAnnotation = AnnotationProxyUtil.proxy(annotation.annotationType(), annotation, new LinkedHashMap<>());
-
+    private static <T extends Annotation> T wrap(T annotation) {
         //noinspection unchecked
-        return (T) proxyAnnotation;
+        final Class<T> type = (Class<T>) annotation.annotationType();
+        return AnnotationProxyUtil.instance(type, new AnnotationInvocationHandler(type, Collections.emptyMap(), annotation));
     }
 
 }
@@ -0,0 +1,196 @@
+/*
+ * Copyright (c) 2021. ForteScarlet All rights reserved.
+ * Project  parent
+ * File     ClassAnnotationMetadata.java
+ *
+ * You can contact the author through the following channels:
+ * github https://github.com/ForteScarlet
+ * gitee  https://gitee.com/ForteScarlet
+ * email  ForteScarlet@163.com
+ * QQ     1149159218
+ */
+
+package love.forte.common.utils.annotation;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.AnnotatedElement;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * 依附于某个 {@link Class} 的注解元数据，通过 {@link ClassValue} 保存在类型自身上。
+ * <p>
+ * 其中记录了此类型的注解索引，以及其成员（方法、字段、构造与它们的参数）的注解索引。
+ * 成员的注解索引以 {@link AnnotatedElementKey#getOrdinal()} 为下标保存在数组中。
+ * 同时也记录了类型与其成员在继承结构中查找注解的结果。
+ * 由于元数据的生命周期与类型一致，当类型所在的类加载器被回收时，元数据也会一同被回收，不会像普通的缓存一样持有类加载器。
+ *
+ * @author ForteScarlet
+ */
+final class ClassAnnotationMetadata {
+
+    /**
+     * 构建时的缓存版本。当 {@link AnnotationUtil#cleanCache()} 被调用后版本变更，旧的元数据便会被丢弃。
+     */
+    final int generation;
+
+    private volatile AnnotationIndex index;
+
+    private final Class<?> type;
+
+    /**
+     * 发布的注解索引数量的计数，由同一版本的所有元数据共享。
+     */
+    private final LongAdder published;
+
+    /**
+     * 成员序号 -> 注解索引。在第一次获取成员索引的时候创建。
+     */
+    private volatile AtomicReferenceArray<AnnotationIndex> memberIndexes;
+
+    /**
+     * 元素序号 -> (注解类型 -> 在继承结构中查找到的注解)。在第一次查找的时候创建。
+     * 不存在的注解记录为 {@link #ABSENT}。
+     */
+    private volatile AtomicReferenceArray<ConcurrentMap<Class<?>, Object>> inherited;
+
+    private static final Object ABSENT = new Object();
+
+    private static final AtomicReferenceFieldUpdater<ClassAnnotationMetadata, AnnotationIndex> INDEX_UPDATER =
+            AtomicReferenceFieldUpdater.newUpdater(ClassAnnotationMetadata.class, AnnotationIndex.class, "index");
+
+    ClassAnnotationMetadata(Class<?> type, int generation, LongAdder published) {
+        this.type = type;
+        this.generation = generation;
+        this.published = published;
+    }
+
+
+    /**
+     * 得到此类型自身的注解索引。
+     */
+    AnnotationIndex index(Function<AnnotatedElement, AnnotationIndex> builder) {
+        AnnotationIndex index = this.index;
+        if (index == null) {
+            // 并发时可能会重复构建，但只有第一个结果会被发布，
+            // 因此也不会覆盖期间通过 replaceIndex 更新的索引。
+            final AnnotationIndex built = builder.apply(type);
+            if (INDEX_UPDATER.compareAndSet(this, null, built)) {
+                published.increment();
+                index = built;
+            } else {
+                index = this.index;
+            }
+        }
+        return index;
+    }
+
+
+    /**
+     * 当此类型自身的注解索引仍为 {@code expect} 时将其替换为 {@code update}。
+     *
+     * @return 是否替换成功
+     */
+    boolean replaceIndex(AnnotationIndex expect, AnnotationIndex update) {
+        return INDEX_UPDATER.compareAndSet(this, expect, update);
+    }
+
+
+    /**
+     * 得到此类型中某个成员的注解索引。
+     *
+     * @param key    成员的标识
+     * @param member 成员
+     */
+    AnnotationIndex memberIndex(AnnotatedElementKey key, AnnotatedElement member, Function<AnnotatedElement, AnnotationIndex> builder) {
+        AtomicReferenceArray<AnnotationIndex> indexes = this.memberIndexes;
+        if (indexes == null) {
+            synchronized (this) {
+                indexes = this.memberIndexes;
+                if (indexes == null) {
+                    this.memberIndexes = indexes = new AtomicReferenceArray<>(ClassMembers.of(type).size());
+                }
+            }
+        }
+        final int ordinal = key.getOrdinal();
+        AnnotationIndex index = indexes.get(ordinal);
+        if (index == null) {
+            // 不在锁中进行解析。并发时可能重复构建，但只有第一个结果会被发布。
+            index = builder.apply(member);
+            if (indexes.compareAndSet(ordinal, null, index)) {
+                published.increment();
+            } else {
+                index = indexes.get(ordinal);
+            }
+        }
+        return index;
+    }
+
+
+    /**
+     * 当此类型中某个成员的注解索引仍为 {@code expect} 时将其替换为 {@code update}。
+     *
+     * @return 是否替换成功
+     */
+    boolean replaceMemberIndex(AnnotatedElementKey key, AnnotationIndex expect, AnnotationIndex update) {
+        final AtomicReferenceArray<AnnotationIndex> indexes = this.memberIndexes;
+        return indexes != null && indexes.compareAndSet(key.getOrdinal(), expect, update);
+    }
+
+
+    /**
+     * 移除此类型或其成员在继承结构中对某个注解的查找记录。
+     */
+    void forgetInherited(AnnotatedElementKey key, Class<?> annotationType) {
+        final AtomicReferenceArray<ConcurrentMap<Class<?>, Object>> inherited = this.inherited;
+        if (inherited != null) {
+            final ConcurrentMap<Class<?>, Object> results = inherited.get(key.getOrdinal());
+            if (results != null) {
+                results.remove(annotationType);
+            }
+        }
+    }
+
+
+    /**
+     * 得到此类型或其成员在继承结构中查找注解的结果，结果会被记录。
+     *
+     * @param key            类型或成员的标识
+     * @param annotationType 注解类型
+     * @param resolver       真正进行查找的函数
+     */
+    @SuppressWarnings("unchecked")
+    <T extends Annotation> T inherited(AnnotatedElementKey key, Class<T> annotationType, Supplier<T> resolver) {
+        AtomicReferenceArray<ConcurrentMap<Class<?>, Object>> inherited = this.inherited;
+        if (inherited == null) {
+            synchronized (this) {
+                inherited = this.inherited;
+                if (inherited == null) {
+                    this.inherited = inherited = new AtomicReferenceArray<>(ClassMembers.of(type).size());
+                }
+            }
+        }
+        final int ordinal = key.getOrdinal();
+        ConcurrentMap<Class<?>, Object> results = inherited.get(ordinal);
+        if (results == null) {
+            inherited.compareAndSet(ordinal, null, new ConcurrentHashMap<>(4));
+            results = inherited.get(ordinal);
+        }
+        Object result = results.get(annotationType);
+        if (result == null) {
+            // 不在锁中进行查找。并发时可能重复查找，但是结果一致。
+            final T annotation = resolver.get();
+            result = annotation == null ? ABSENT : annotation;
+            final Object old = results.putIfAbsent(annotationType, result);
+            if (old != null) {
+                result = old;
+            }
+        }
+        return result == ABSENT ? null : (T) result;
+    }
+}
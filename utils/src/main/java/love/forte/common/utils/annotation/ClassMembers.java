@@ -0,0 +1,394 @@
+/*
+ * Copyright (c) 2021. ForteScarlet All rights reserved.
+ * Project  parent
+ * File     ClassMembers.java
+ *
+ * You can contact the author through the following channels:
+ * github https://github.com/ForteScarlet
+ * gitee  https://gitee.com/ForteScarlet
+ * email  ForteScarlet@163.com
+ * QQ     1149159218
+ */
+
+package love.forte.common.utils.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.reflect.*;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * 某个类型中所有声明成员的规范标识表，通过 {@link ClassValue} 保存在类型自身上，每个类型仅构建一次。
+ * <p>
+ * 序号的分配顺序为：类型本身、方法、字段、构造，然后依次为每个方法与构造的参数。
+ * 查找成员时先根据名称得到候选，先进行引用比较，再进行 {@code equals} 比较。
+ *
+ * @author ForteScarlet
+ */
+final class ClassMembers {
+
+    private static final ClassValue<ClassMembers> MEMBERS = new ClassValue<ClassMembers>() {
+        @Override
+        protected ClassMembers computeValue(Class<?> type) {
+            return new ClassMembers(type);
+        }
+    };
+
+    private static final Method[] NO_METHODS = new Method[0];
+    private static final Field[] NO_FIELDS = new Field[0];
+    private static final Constructor<?>[] NO_CONSTRUCTORS = new Constructor<?>[0];
+
+    private final AnnotatedElementKey typeKey;
+
+    private final Method[] methods;
+    private final Field[] fields;
+    private final Constructor<?>[] constructors;
+
+    /**
+     * 方法名称 -> 方法下标列表。
+     */
+    private final Map<String, int[]> methodsByName;
+
+    /**
+     * 字段名称 -> 字段下标。
+     */
+    private final Map<String, Integer> fieldsByName;
+
+    private final AnnotatedElementKey[] methodKeys;
+    private final AnnotatedElementKey[] fieldKeys;
+    private final AnnotatedElementKey[] constructorKeys;
+
+    /**
+     * 每个可执行成员的参数标识，下标与 {@link #methods}、{@link #constructors} 的顺序一致（方法在前）。
+     */
+    private final AnnotatedElementKey[][] parameterKeys;
+
+    /**
+     * 每个可执行成员的参数实例，在第一次查找参数的时候获取。
+     */
+    private final AtomicReferenceArray<Parameter[]> parameters;
+
+    private final int size;
+
+    /**
+     * 所有的父类型，在第一次使用时计算。
+     */
+    private volatile Class<?>[] supertypes;
+
+    static ClassMembers of(Class<?> type) {
+        return MEMBERS.get(type);
+    }
+
+    private ClassMembers(Class<?> type) {
+        Method[] methods;
+        Field[] fields;
+        Constructor<?>[] constructors;
+        try {
+            methods = type.getDeclaredMethods();
+            fields = type.getDeclaredFields();
+            constructors = type.getDeclaredConstructors();
+        } catch (LinkageError e) {
+            // 类型中存在无法加载的成员类型，此时不对成员进行记录。
+            methods = NO_METHODS;
+            fields = NO_FIELDS;
+            constructors = NO_CONSTRUCTORS;
+        }
+        this.methods = methods;
+        this.fields = fields;
+        this.constructors = constructors;
+
+        int ordinal = 0;
+        this.typeKey = new AnnotatedElementKey(type, ElementType.TYPE, type.getSimpleName(), ordinal++);
+
+        this.methodKeys = new AnnotatedElementKey[methods.length];
+        final Map<String, int[]> methodsByName = new HashMap<>(methods.length * 2);
+        for (int i = 0; i < methods.length; i++) {
+            final String name = methods[i].getName();
+            methodKeys[i] = new AnnotatedElementKey(type, ElementType.METHOD, name, ordinal++);
+            final int[] old = methodsByName.get(name);
+            final int[] indexes;
+            if (old == null) {
+                indexes = new int[]{i};
+            } else {
+                indexes = new int[old.length + 1];
+                System.arraycopy(old, 0, indexes, 0, old.length);
+                indexes[old.length] = i;
+            }
+            methodsByName.put(name, indexes);
+        }
+        this.methodsByName = methodsByName;
+
+        this.fieldKeys = new AnnotatedElementKey[fields.length];
+        final Map<String, Integer> fieldsByName = new HashMap<>(fields.length * 2);
+        for (int i = 0; i < fields.length; i++) {
+            final String name = fields[i].getName();
+            fieldKeys[i] = new AnnotatedElementKey(type, ElementType.FIELD, name, ordinal++);
+            fieldsByName.put(name, i);
+        }
+        this.fieldsByName = fieldsByName;
+
+        this.constructorKeys = new AnnotatedElementKey[constructors.length];
+        for (int i = 0; i < constructors.length; i++) {
+            constructorKeys[i] = new AnnotatedElementKey(type, ElementType.CONSTRUCTOR, "<init>", ordinal++);
+        }
+
+        this.parameterKeys = new AnnotatedElementKey[methods.length + constructors.length][];
+        for (int i = 0; i < parameterKeys.length; i++) {
+            final Executable executable = executable(i);
+            final String name = i < methods.length ? methods[i].getName() : "<init>";
+            final AnnotatedElementKey[] keys = new AnnotatedElementKey[executable.getParameterCount()];
+            for (int p = 0; p < keys.length; p++) {
+                keys[p] = new AnnotatedElementKey(type, ElementType.PARAMETER, name + "$" + p, ordinal++);
+            }
+            parameterKeys[i] = keys;
+        }
+        this.parameters = new AtomicReferenceArray<>(parameterKeys.length);
+
+        this.size = ordinal;
+    }
+
+
+    /**
+     * 标识的数量，即序号的上限。
+     */
+    int size() {
+        return size;
+    }
+
+    AnnotatedElementKey typeKey() {
+        return typeKey;
+    }
+
+
+    /**
+     * 得到某个成员的标识。如果不是此类型中声明的成员，得到null。
+     */
+    AnnotatedElementKey keyOf(AnnotatedElement element) {
+        if (element instanceof Method) {
+            final int i = methodIndex((Method) element);
+            return i < 0 ? null : methodKeys[i];
+        }
+        if (element instanceof Field) {
+            final Integer i = fieldsByName.get(((Field) element).getName());
+            return i == null || !equals(fields[i], element) ? null : fieldKeys[i];
+        }
+        if (element instanceof Constructor) {
+            final int i = constructorIndex((Constructor<?>) element);
+            return i < 0 ? null : constructorKeys[i];
+        }
+        if (element instanceof Parameter) {
+            return parameterKey((Parameter) element);
+        }
+        return null;
+    }
+
+
+    /**
+     * 遍历此类型中所有声明的成员与它们的参数。
+     */
+    void forEachMember(Consumer<AnnotatedElement> action) {
+        for (Method method : methods) {
+            action.accept(method);
+        }
+        for (Field field : fields) {
+            action.accept(field);
+        }
+        for (Constructor<?> constructor : constructors) {
+            action.accept(constructor);
+        }
+        for (int i = 0; i < parameterKeys.length; i++) {
+            if (parameterKeys[i].length == 0) {
+                continue;
+            }
+            Parameter[] parameters = this.parameters.get(i);
+            if (parameters == null) {
+                parameters = executable(i).getParameters();
+                this.parameters.set(i, parameters);
+            }
+            for (Parameter parameter : parameters) {
+                action.accept(parameter);
+            }
+        }
+    }
+
+
+    /**
+     * 得到此类型的所有父类型（不包括 {@link Object}）。
+     * 顺序为：从近到远的父类，然后按照广度优先的顺序依次为此类型与各个父类所实现的接口，重复的接口仅保留第一次出现的位置。
+     */
+    Class<?>[] supertypes() {
+        Class<?>[] supertypes = this.supertypes;
+        if (supertypes == null) {
+            final Class<?> type = typeKey.getDeclaringClass();
+            final Set<Class<?>> result = new LinkedHashSet<>();
+            final Deque<Class<?>> interfaces = new ArrayDeque<>();
+            Collections.addAll(interfaces, type.getInterfaces());
+            for (Class<?> c = type.getSuperclass(); c != null && c != Object.class; c = c.getSuperclass()) {
+                result.add(c);
+                Collections.addAll(interfaces, c.getInterfaces());
+            }
+            Class<?> i;
+            while ((i = interfaces.poll()) != null) {
+                if (result.add(i)) {
+                    Collections.addAll(interfaces, i.getInterfaces());
+                }
+            }
+            this.supertypes = supertypes = result.toArray(new Class<?>[0]);
+        }
+        return supertypes;
+    }
+
+
+    /**
+     * 寻找此类型中声明的某个可以被 {@code overrider} 中的方法重写的方法，即非 {@code private} 且非 {@code static} 的同名同参方法。
+     * 包级私有的方法仅当 {@code overrider} 与此类型位于同一个包中时才可以被重写。
+     *
+     * @param overrider 重写方法所在的类型
+     * @return 方法，不存在则为null。
+     */
+    Method findOverridable(String name, Class<?>[] parameterTypes, Class<?> overrider) {
+        final int[] candidates = methodsByName.get(name);
+        if (candidates == null) {
+            return null;
+        }
+        for (int i : candidates) {
+            final Method method = methods[i];
+            final int modifiers = method.getModifiers();
+            if (!Modifier.isPrivate(modifiers) && !Modifier.isStatic(modifiers) && !method.isBridge()
+                    && Arrays.equals(method.getParameterTypes(), parameterTypes)
+                    && (Modifier.isPublic(modifiers) || Modifier.isProtected(modifiers) || samePackage(method.getDeclaringClass(), overrider))) {
+                return method;
+            }
+        }
+        return null;
+    }
+
+
+    /**
+     * 得到此类型中声明的某个方法在父类型中可能对应的参数类型列表：方法自身的参数类型，以及编译器为其生成的桥接方法的参数类型。
+     * <p>
+     * 以 {@code on(String)} 实现泛型接口中的 {@code on(T)} 时，父类型中擦除后的 {@code on(Object)} 只出现在桥接方法上，
+     * 因此需要通过桥接方法才能找到被重写的方法。
+     */
+    List<Class<?>[]> overridableSignatures(Method method) {
+        final Class<?>[] parameterTypes = method.getParameterTypes();
+        final int[] candidates = methodsByName.get(method.getName());
+        List<Class<?>[]> signatures = null;
+        if (candidates != null) {
+            for (int i : candidates) {
+                final Method bridge = methods[i];
+                if (bridge.isBridge() && bridges(bridge, method)) {
+                    if (signatures == null) {
+                        signatures = new ArrayList<>(2);
+                        signatures.add(parameterTypes);
+                    }
+                    signatures.add(bridge.getParameterTypes());
+                }
+            }
+        }
+        return signatures == null ? Collections.singletonList(parameterTypes) : signatures;
+    }
+
+
+    /**
+     * 桥接方法 {@code bridge} 是否可能桥接至 {@code method}：参数数量一致，且参数类型与返回值类型均为其擦除后的类型。
+     */
+    private static boolean bridges(Method bridge, Method method) {
+        if (bridge == method || bridge.getParameterCount() != method.getParameterCount()
+                || !bridge.getReturnType().isAssignableFrom(method.getReturnType())) {
+            return false;
+        }
+        final Class<?>[] bridgeTypes = bridge.getParameterTypes();
+        final Class<?>[] types = method.getParameterTypes();
+        for (int i = 0; i < types.length; i++) {
+            if (!bridgeTypes[i].isAssignableFrom(types[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+
+    private static boolean samePackage(Class<?> a, Class<?> b) {
+        if (a.getClassLoader() != b.getClassLoader()) {
+            return false;
+        }
+        final String aName = a.getName();
+        final String bName = b.getName();
+        final int aDot = aName.lastIndexOf('.');
+        return aDot == bName.lastIndexOf('.') && aName.regionMatches(0, bName, 0, Math.max(aDot, 0));
+    }
+
+
+    private int methodIndex(Method method) {
+        final int[] candidates = methodsByName.get(method.getName());
+        if (candidates == null) {
+            return -1;
+        }
+        for (int i : candidates) {
+            if (methods[i] == method) {
+                return i;
+            }
+        }
+        for (int i : candidates) {
+            if (methods[i].equals(method)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+
+    private int constructorIndex(Constructor<?> constructor) {
+        for (int i = 0; i < constructors.length; i++) {
+            if (equals(constructors[i], constructor)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+
+    private AnnotatedElementKey parameterKey(Parameter parameter) {
+        final Executable executable = parameter.getDeclaringExecutable();
+        final int executableIndex;
+        if (executable instanceof Method) {
+            executableIndex = methodIndex((Method) executable);
+        } else {
+            final int i = constructorIndex((Constructor<?>) executable);
+            executableIndex = i < 0 ? -1 : methods.length + i;
+        }
+        if (executableIndex < 0) {
+            return null;
+        }
+
+        Parameter[] parameters = this.parameters.get(executableIndex);
+        if (parameters == null) {
+            // 并发时可能重复获取，但是结果一致。
+            parameters = executable(executableIndex).getParameters();
+            this.parameters.set(executableIndex, parameters);
+        }
+        for (int i = 0; i < parameters.length; i++) {
+            if (parameters[i] == parameter) {
+                return parameterKeys[executableIndex][i];
+            }
+        }
+        for (int i = 0; i < parameters.length; i++) {
+            if (parameters[i].equals(parameter)) {
+                return parameterKeys[executableIndex][i];
+            }
+        }
+        return null;
+    }
+
+
+    private Executable executable(int index) {
+        return index < methods.length ? methods[index] : constructors[index - methods.length];
+    }
+
+
+    private static boolean equals(Object canonical, Object element) {
+        return canonical == element || canonical.equals(element);
+    }
+}
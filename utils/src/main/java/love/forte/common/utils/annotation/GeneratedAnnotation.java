@@ -0,0 +1,102 @@
+package love.forte.common.utils.annotation;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+/**
+ * 由 {@link AnnotationClassGenerator} 生成的注解实现类的父类。
+ * <p>
+ * 生成的子类会实现对应的注解接口，并将每个成员值保存在 {@code final} 字段中，成员的读取即为直接的字段访问。
+ * 此父类负责 {@link #annotationType()}、{@link #equals(Object)}、{@link #hashCode()}、{@link #toString()} 的实现，
+ * 其中 {@code hashCode} 与 {@code toString} 均在构建时预先计算。
+ * <p>
+ * 此类仅用于生成的子类继承，不应直接使用。
+ *
+ * @author ForteScarlet
+ * @see AnnotationProxyUtil#instance(Class, Annotation, java.util.Map)
+ */
+public abstract class GeneratedAnnotation implements Annotation {
+
+    private final Class<? extends Annotation> type;
+
+    /**
+     * 所有的成员值，顺序与 {@link AnnotationLayout} 一致。
+     */
+    private final Object[] values;
+
+    private final int hash;
+
+    private final String string;
+
+    protected GeneratedAnnotation(Class<? extends Annotation> type, Object[] values, int hash, String string) {
+        this.type = type;
+        this.values = values;
+        this.hash = hash;
+        this.string = string;
+    }
+
+    /**
+     * 根据 {@code slot} 得到成员值。数组值不会被复制，不要修改它。
+     */
+    final Object value(int slot) {
+        return values[slot];
+    }
+
+    /**
+     * 得到所有的成员值。不要修改此数组。
+     */
+    final Object[] values() {
+        return values;
+    }
+
+    @Override
+    public final Class<? extends Annotation> annotationType() {
+        return type;
+    }
+
+    @Override
+    public final int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public final String toString() {
+        return string;
+    }
+
+    @Override
+    public final boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!type.isInstance(other)) {
+            return false;
+        }
+        final Object[] values = this.values;
+        if (other instanceof GeneratedAnnotation) {
+            final GeneratedAnnotation otherAnnotation = (GeneratedAnnotation) other;
+            return hash == otherAnnotation.hash && AnnotationMembers.valuesEquals(values, otherAnnotation.values);
+        }
+        final AnnotationInvocationHandler handler = AnnotationInvocationHandler.handlerOf(other);
+        if (handler != null) {
+            return hash == other.hashCode() && AnnotationMembers.valuesEquals(values, handler.values());
+        }
+
+        final Method[] members = AnnotationLayout.of(type).getMembers();
+        for (int i = 0; i < members.length; i++) {
+            final Object otherValue;
+            try {
+                otherValue = members[i].invoke(other);
+            } catch (InvocationTargetException e) {
+                return false;
+            } catch (IllegalAccessException e) {
+                throw new AssertionError(e);
+            }
+            if (!AnnotationMembers.memberValueEqualsNullable(values[i], otherValue)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) 2021. ForteScarlet All rights reserved.
+ * Project  parent
+ * File     RepeatableContainer.java
+ *
+ * You can contact the author through the following channels:
+ * github https://github.com/ForteScarlet
+ * gitee  https://gitee.com/ForteScarlet
+ * email  ForteScarlet@163.com
+ * QQ     1149159218
+ */
+
+package love.forte.common.utils.annotation;
+
+import java.lang.annotation.Annotation;
+import java.lang.annotation.Repeatable;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Array;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 可重复注解的容器注解描述。
+ * <p>
+ * 当一个注解的 {@code value()} 为某个注解的数组，且此注解通过 {@link Repeatable} 指向了当前注解时，认为当前注解为一个容器注解。
+ * 描述在每个注解类型第一次使用时构建，其中记录了子注解类型、{@code value} 的访问方式与对应类型的空数组，
+ * 之后对于容器值的读取、合并与构建都不再需要反射。
+ *
+ * @author ForteScarlet
+ */
+final class RepeatableContainer {
+
+    private static final MethodType VALUE_TYPE = MethodType.methodType(Annotation[].class, Annotation.class);
+
+    /**
+     * 不是容器注解的类型所对应的值。
+     */
+    private static final RepeatableContainer NONE = new RepeatableContainer(null, null, -1, null, null);
+
+    private static final ClassValue<RepeatableContainer> CONTAINERS = new ClassValue<RepeatableContainer>() {
+        @Override
+        protected RepeatableContainer computeValue(Class<?> type) {
+            //noinspection unchecked
+            return create((Class<? extends Annotation>) type);
+        }
+    };
+
+    private final Class<? extends Annotation> containerType;
+    private final Class<? extends Annotation> childType;
+
+    /**
+     * {@code value} 在容器注解中的 {@code slot}。
+     */
+    private final int valueSlot;
+
+    /**
+     * {@code value} 的访问句柄，类型为 {@code (Annotation)Annotation[]}。
+     */
+    private final MethodHandle valueAccessor;
+
+    /**
+     * 子注解类型的空数组，用于创建对应类型的数组。
+     */
+    private final Annotation[] emptyChildren;
+
+    private RepeatableContainer(Class<? extends Annotation> containerType, Class<? extends Annotation> childType,
+                                int valueSlot, MethodHandle valueAccessor, Annotation[] emptyChildren) {
+        this.containerType = containerType;
+        this.childType = childType;
+        this.valueSlot = valueSlot;
+        this.valueAccessor = valueAccessor;
+        this.emptyChildren = emptyChildren;
+    }
+
+
+    /**
+     * 得到某个注解类型的容器描述。
+     *
+     * @return 容器描述，如果不是容器注解则为null。
+     */
+    static RepeatableContainer of(Class<? extends Annotation> annotationType) {
+        final RepeatableContainer container = CONTAINERS.get(annotationType);
+        return container == NONE ? null : container;
+    }
+
+
+    private static RepeatableContainer create(Class<? extends Annotation> containerType) {
+        final AnnotationLayout layout = AnnotationLayout.of(containerType);
+        final int valueSlot = layout.slot("value");
+        if (valueSlot < 0) {
+            return NONE;
+        }
+        final Class<?> valueType = layout.getMember(valueSlot).getReturnType();
+        if (!valueType.isArray() || !valueType.getComponentType().isAnnotation()) {
+            return NONE;
+        }
+        //noinspection unchecked
+        final Class<? extends Annotation> childType = (Class<? extends Annotation>) valueType.getComponentType();
+        final Repeatable repeatable = childType.getAnnotation(Repeatable.class);
+        if (repeatable == null || !repeatable.value().equals(containerType)) {
+            return NONE;
+        }
+
+        final MethodHandle valueAccessor = layout.accessor(valueSlot).asType(VALUE_TYPE);
+
+        return new RepeatableContainer(containerType, childType, valueSlot, valueAccessor,
+                (Annotation[]) Array.newInstance(childType, 0));
+    }
+
+
+    Class<? extends Annotation> getChildType() {
+        return childType;
+    }
+
+
+    /**
+     * 读取容器注解中的子注解。对于动态构建的实例，直接读取其中的值而不会复制数组，不要修改它。
+     */
+    Annotation[] children(Annotation container) {
+        final AnnotationInvocationHandler handler = AnnotationInvocationHandler.handlerOf(container);
+        if (handler != null) {
+            return (Annotation[]) handler.get(valueSlot);
+        }
+        if (container instanceof GeneratedAnnotation) {
+            return (Annotation[]) ((GeneratedAnnotation) container).value(valueSlot);
+        }
+        try {
+            return (Annotation[]) valueAccessor.invokeExact(container);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+
+    /**
+     * 将已有的子注解与额外的子注解合并为一个子注解类型的数组。
+     */
+    Annotation[] merge(Annotation[] children, List<Annotation> extra) {
+        final Annotation[] merged = Arrays.copyOf(children, children.length + extra.size(), emptyChildren.getClass());
+        for (int i = 0, size = extra.size(); i < size; i++) {
+            merged[children.length + i] = extra.get(i);
+        }
+        return merged;
+    }
+
+
+    /**
+     * 使用子注解构建一个容器注解的实例。
+     */
+    Annotation newContainer(List<Annotation> children) {
+        final Object[] values = new Object[AnnotationLayout.of(containerType).size()];
+        values[valueSlot] = children.toArray(emptyChildren);
+        return AnnotationProxyUtil.instance(containerType, new AnnotationInvocationHandler(containerType, values, null));
+    }
+}
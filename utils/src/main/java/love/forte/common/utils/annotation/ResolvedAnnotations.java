@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2021. ForteScarlet All rights reserved.
+ * Project  parent
+ * File     ResolvedAnnotations.java
+ *
+ * You can contact the author through the following channels:
+ * github https://github.com/ForteScarlet
+ * gitee  https://gitee.com/ForteScarlet
+ * email  ForteScarlet@163.com
+ * QQ     1149159218
+ */
+
+package love.forte.common.utils.annotation;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.AnnotatedElement;
+import java.util.Arrays;
+
+/**
+ * 通过 {@link AnnotationUtil#getAnnotations(AnnotatedElement, Class[])} 一次性解析得到的一组注解结果。
+ * <p>
+ * 结果按照请求时的注解类型顺序保存，数量通常很少，因此查询时直接按顺序比较类型。
+ * 某个类型在解析时的异常会在获取此类型的时候再抛出，不影响其他类型的获取。
+ *
+ * @author ForteScarlet
+ * @see AnnotationUtil#getAnnotations(AnnotatedElement, Class[])
+ */
+public final class ResolvedAnnotations {
+
+    private final Class<? extends Annotation>[] types;
+    private final Annotation[] annotations;
+
+    /**
+     * 解析失败的异常。没有任何失败的时候为null。
+     */
+    private final RuntimeException[] failures;
+
+    ResolvedAnnotations(Class<? extends Annotation>[] types, Annotation[] annotations, RuntimeException[] failures) {
+        this.types = types;
+        this.annotations = annotations;
+        this.failures = failures;
+    }
+
+    /**
+     * 获取某个类型的注解。
+     *
+     * @param annotationType 注解类型
+     * @return 注解实例，不存在则为null。
+     * @throws IllegalArgumentException 如果此类型不在请求的类型之中。
+     */
+    @SuppressWarnings("unchecked")
+    public <T extends Annotation> T get(Class<T> annotationType) {
+        final int i = indexOf(annotationType);
+        if (failures != null && failures[i] != null) {
+            throw failures[i];
+        }
+        return (T) annotations[i];
+    }
+
+    /**
+     * 是否存在某个类型的注解。
+     *
+     * @throws IllegalArgumentException 如果此类型不在请求的类型之中。
+     */
+    public boolean contains(Class<? extends Annotation> annotationType) {
+        return get(annotationType) != null;
+    }
+
+    private int indexOf(Class<? extends Annotation> annotationType) {
+        final Class<? extends Annotation>[] types = this.types;
+        for (int i = 0; i < types.length; i++) {
+            if (types[i] == annotationType) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("Annotation type " + annotationType.getName() + " was not requested, requested: " + Arrays.toString(types));
+    }
+
+    @Override
+    public String toString() {
+        return "ResolvedAnnotations" + Arrays.toString(annotations);
+    }
+}
@@ -0,0 +1,433 @@
+/*
+ * Copyright (c) 2021. ForteScarlet All rights reserved.
+ * Project  parent
+ * File     ClassHeader.java
+ *
+ * You can contact the author through the following channels:
+ * github https://github.com/ForteScarlet
+ * gitee  https://gitee.com/ForteScarlet
+ * email  ForteScarlet@163.com
+ * QQ     1149159218
+ */
+
+package love.forte.common.utils.scanner;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Modifier;
+import java.util.*;
+
+/**
+ * 直接从class文件中解析得到的类型头部信息，解析的过程不会加载此类型。
+ * <p>
+ * 其中包括类型的名称、访问标识、父类、实现的接口以及类型上 <b>运行时可见</b> 的注解类型名称。
+ * 所有的类型名称均与 {@link Class#getName()} 的格式一致，例如 {@code a.b.Outer$Inner}。
+ * <p>
+ * 注解名称仅包含直接标注在类型上的注解，不包括通过注解继承或者 {@link java.lang.annotation.Inherited} 得到的注解。
+ *
+ * @author ForteScarlet
+ * @see ClassesScanner#scanByHeader(String, java.util.function.Predicate)
+ */
+public final class ClassHeader {
+
+    private static final int MAGIC = 0xCAFEBABE;
+
+    private static final int ACC_INTERFACE = 0x0200;
+    private static final int ACC_ANNOTATION = 0x2000;
+    private static final int ACC_ENUM = 0x4000;
+    private static final int ACC_MODULE = 0x8000;
+
+    private final String name;
+    private final int accessFlags;
+    private final String superName;
+    private final List<String> interfaceNames;
+    private final Set<String> annotationNames;
+    private final int majorVersion;
+
+    ClassHeader(String name, int accessFlags, String superName, List<String> interfaceNames, Set<String> annotationNames, int majorVersion) {
+        this.name = name;
+        this.accessFlags = accessFlags;
+        this.superName = superName;
+        this.interfaceNames = interfaceNames;
+        this.annotationNames = annotationNames;
+        this.majorVersion = majorVersion;
+    }
+
+
+    /**
+     * 类型的名称。
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * class文件中的访问标识，参考 {@link Modifier}。
+     */
+    public int getAccessFlags() {
+        return accessFlags;
+    }
+
+    /**
+     * 父类的名称。{@link Object} 与 {@code module-info} 没有父类，得到null。
+     */
+    public String getSuperName() {
+        return superName;
+    }
+
+    /**
+     * 直接实现（或者对于接口来说，直接继承）的接口名称。
+     */
+    public List<String> getInterfaceNames() {
+        return interfaceNames;
+    }
+
+    /**
+     * 类型上直接标注的运行时可见注解的类型名称。
+     */
+    public Set<String> getAnnotationNames() {
+        return annotationNames;
+    }
+
+    /**
+     * class文件的主版本号，例如Java 8为 {@code 52}。
+     */
+    public int getMajorVersion() {
+        return majorVersion;
+    }
+
+    public boolean isPublic() {
+        return Modifier.isPublic(accessFlags);
+    }
+
+    public boolean isAbstract() {
+        return Modifier.isAbstract(accessFlags);
+    }
+
+    public boolean isInterface() {
+        return (accessFlags & ACC_INTERFACE) != 0;
+    }
+
+    public boolean isAnnotation() {
+        return (accessFlags & ACC_ANNOTATION) != 0;
+    }
+
+    public boolean isEnum() {
+        return (accessFlags & ACC_ENUM) != 0;
+    }
+
+    /**
+     * 是否为 {@code module-info}。
+     */
+    public boolean isModule() {
+        return (accessFlags & ACC_MODULE) != 0;
+    }
+
+    /**
+     * 是否为一个可以实例化的具体类：不是接口、注解、枚举，也不是抽象类。
+     */
+    public boolean isConcrete() {
+        return (accessFlags & (ACC_INTERFACE | ACC_ANNOTATION | ACC_ENUM | ACC_MODULE | Modifier.ABSTRACT)) == 0;
+    }
+
+    /**
+     * 类型上是否直接标注了某个注解。
+     *
+     * @param annotationName 注解的类型名称
+     */
+    public boolean hasAnnotation(String annotationName) {
+        return annotationNames.contains(annotationName);
+    }
+
+    /**
+     * 类型上是否直接标注了某个注解。判断仅通过名称进行，不会加载任何类型。
+     *
+     * @param annotationType 注解类型
+     */
+    public boolean hasAnnotation(Class<? extends Annotation> annotationType) {
+        return annotationNames.contains(annotationType.getName());
+    }
+
+    /**
+     * 是否直接继承了某个父类或者直接实现了某个接口。
+     *
+     * @param typeName 父类或接口的名称
+     */
+    public boolean isDirectSubtypeOf(String typeName) {
+        return typeName.equals(superName) || interfaceNames.contains(typeName);
+    }
+
+    @Override
+    public String toString() {
+        return "ClassHeader(" + name + ", super=" + superName + ", interfaces=" + interfaceNames + ", annotations=" + annotationNames + ")";
+    }
+
+
+    /**
+     * 从输入流中读取并解析class文件的头部信息。流会被读取至末尾，但是不会被关闭。
+     *
+     * @param in class文件的输入流
+     * @return 头部信息
+     * @throws IOException              读取失败
+     * @throws IllegalArgumentException 如果不是一个合法的class文件
+     */
+    public static ClassHeader read(InputStream in) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream(4096);
+        final byte[] buffer = new byte[4096];
+        int len;
+        while ((len = in.read(buffer)) != -1) {
+            out.write(buffer, 0, len);
+        }
+        return read(out.toByteArray());
+    }
+
+    /**
+     * 解析class文件的头部信息。
+     *
+     * @param bytes class文件的内容
+     * @return 头部信息
+     * @throws IllegalArgumentException 如果不是一个合法的class文件
+     */
+    public static ClassHeader read(byte[] bytes) {
+        try {
+            return new Parser(bytes).parse();
+        } catch (IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Truncated class file.", e);
+        }
+    }
+
+
+    /**
+     * class文件的解析器。仅解析常量池中被用到的条目，其余部分仅跳过。
+     */
+    private static final class Parser {
+        private final byte[] bytes;
+        private int pos;
+
+        /**
+         * 常量池中每个条目（tag之后）的偏移量。
+         */
+        private int[] offsets;
+
+        private Parser(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        ClassHeader parse() {
+            if (u4() != MAGIC) {
+                throw new IllegalArgumentException("Not a class file: bad magic.");
+            }
+            u2(); // minor
+            final int major = u2();
+
+            readConstantPool();
+
+            final int access = u2();
+            final String name = className(u2());
+            final int superIndex = u2();
+            final String superName = superIndex == 0 ? null : className(superIndex);
+
+            final int interfaceCount = u2();
+            final List<String> interfaces;
+            if (interfaceCount == 0) {
+                interfaces = Collections.emptyList();
+            } else {
+                final String[] names = new String[interfaceCount];
+                for (int i = 0; i < interfaceCount; i++) {
+                    names[i] = className(u2());
+                }
+                interfaces = Collections.unmodifiableList(Arrays.asList(names));
+            }
+
+            // fields & methods
+            skipMembers();
+            skipMembers();
+
+            Set<String> annotations = Collections.emptySet();
+            final int attributeCount = u2();
+            for (int i = 0; i < attributeCount; i++) {
+                final String attributeName = utf8(u2());
+                final int length = u4();
+                final int end = pos + length;
+                if ("RuntimeVisibleAnnotations".equals(attributeName)) {
+                    annotations = readAnnotationNames();
+                }
+                pos = end;
+            }
+
+            return new ClassHeader(name, access, superName, interfaces, annotations, major);
+        }
+
+
+        private void readConstantPool() {
+            final int count = u2();
+            offsets = new int[count];
+            for (int i = 1; i < count; i++) {
+                final int tag = u1();
+                offsets[i] = pos;
+                switch (tag) {
+                    // Utf8
+                    case 1:
+                        final int length = u2At(pos);
+                        pos += 2 + length;
+                        break;
+                    // Integer, Float, Fieldref, Methodref, InterfaceMethodref, NameAndType, Dynamic, InvokeDynamic
+                    case 3:
+                    case 4:
+                    case 9:
+                    case 10:
+                    case 11:
+                    case 12:
+                    case 17:
+                    case 18:
+                        pos += 4;
+                        break;
+                    // Long, Double 占用两个位置
+                    case 5:
+                    case 6:
+                        pos += 8;
+                        i++;
+                        break;
+                    // Class, String, MethodType, Module, Package
+                    case 7:
+                    case 8:
+                    case 16:
+                    case 19:
+                    case 20:
+                        pos += 2;
+                        break;
+                    // MethodHandle
+                    case 15:
+                        pos += 3;
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown constant pool tag " + tag + " at index " + i);
+                }
+            }
+        }
+
+        private void skipMembers() {
+            final int count = u2();
+            for (int i = 0; i < count; i++) {
+                // access, name, descriptor
+                pos += 6;
+                final int attributeCount = u2();
+                for (int j = 0; j < attributeCount; j++) {
+                    pos += 2;
+                    final int length = u4();
+                    pos += length;
+                }
+            }
+        }
+
+        private Set<String> readAnnotationNames() {
+            final int count = u2();
+            if (count == 0) {
+                return Collections.emptySet();
+            }
+            final Set<String> names = new LinkedHashSet<>(count * 2);
+            for (int i = 0; i < count; i++) {
+                names.add(descriptorToName(utf8(u2())));
+                skipElementValuePairs();
+            }
+            return Collections.unmodifiableSet(names);
+        }
+
+        private void skipElementValuePairs() {
+            final int pairs = u2();
+            for (int i = 0; i < pairs; i++) {
+                pos += 2;
+                skipElementValue();
+            }
+        }
+
+        private void skipElementValue() {
+            final int tag = u1();
+            switch (tag) {
+                case 'e':
+                    pos += 4;
+                    break;
+                case '@':
+                    pos += 2;
+                    skipElementValuePairs();
+                    break;
+                case '[':
+                    final int count = u2();
+                    for (int i = 0; i < count; i++) {
+                        skipElementValue();
+                    }
+                    break;
+                default:
+                    // B C D F I J S Z s c
+                    pos += 2;
+                    break;
+            }
+        }
+
+        /**
+         * 读取常量池中 {@code CONSTANT_Class} 条目所代表的类型名称。
+         */
+        private String className(int index) {
+            return utf8(u2At(offsets[index])).replace('/', '.');
+        }
+
+        private String utf8(int index) {
+            final int offset = offsets[index];
+            final int length = u2At(offset);
+            return decodeUtf8(offset + 2, length);
+        }
+
+        /**
+         * 解码 <i>modified UTF-8</i>。
+         */
+        private String decodeUtf8(int start, int length) {
+            final char[] chars = new char[length];
+            int count = 0;
+            int i = start;
+            final int end = start + length;
+            while (i < end) {
+                final int c = bytes[i++] & 0xFF;
+                if (c < 0x80) {
+                    chars[count++] = (char) c;
+                } else if ((c & 0xE0) == 0xC0) {
+                    chars[count++] = (char) (((c & 0x1F) << 6) | (bytes[i++] & 0x3F));
+                } else {
+                    chars[count++] = (char) (((c & 0x0F) << 12) | ((bytes[i++] & 0x3F) << 6) | (bytes[i++] & 0x3F));
+                }
+            }
+            return new String(chars, 0, count);
+        }
+
+        private int u1() {
+            return bytes[pos++] & 0xFF;
+        }
+
+        private int u2() {
+            final int value = u2At(pos);
+            pos += 2;
+            return value;
+        }
+
+        private int u2At(int offset) {
+            return ((bytes[offset] & 0xFF) << 8) | (bytes[offset + 1] & 0xFF);
+        }
+
+        private int u4() {
+            final int value = ((bytes[pos] & 0xFF) << 24) | ((bytes[pos + 1] & 0xFF) << 16) | ((bytes[pos + 2] & 0xFF) << 8) | (bytes[pos + 3] & 0xFF);
+            pos += 4;
+            return value;
+        }
+
+        /**
+         * {@code La/b/C;} -> {@code a.b.C}
+         */
+        private static String descriptorToName(String descriptor) {
+            if (descriptor.length() > 2 && descriptor.charAt(0) == 'L' && descriptor.charAt(descriptor.length() - 1) == ';') {
+                return descriptor.substring(1, descriptor.length() - 1).replace('/', '.');
+            }
+            return descriptor;
+        }
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2021. ForteScarlet All rights reserved.
+ * Project  parent
+ * File     ClassRef.java
+ *
+ * You can contact the author through the following channels:
+ * github https://github.com/ForteScarlet
+ * gitee  https://gitee.com/ForteScarlet
+ * email  ForteScarlet@163.com
+ * QQ     1149159218
+ */
+
+package love.forte.common.utils.scanner;
+
+import java.net.URL;
+
+/**
+ * 扫描得到的一个尚未加载的类的引用。
+ * <p>
+ * 其中包括类的名称、其所在的类路径根（例如jar文件或者 {@code classes} 目录）以及从class文件中解析得到的 {@link ClassHeader}。
+ * 只有在第一次调用 {@link #resolve()} 的时候才会通过扫描时所使用的类加载器加载此类，
+ * 因此仅根据名称或头部信息进行判断时不会产生加载、链接的开销。
+ * <p>
+ * 两个引用的名称与类路径根均相同时认为相等。
+ *
+ * @author ForteScarlet
+ * @see ClassesScanner#scanRefs(String, java.util.function.Predicate, java.util.function.Consumer)
+ */
+public final class ClassRef {
+
+    private final String name;
+    private final URL source;
+    private final ClassHeader header;
+    private final ClassLoader classLoader;
+
+    private volatile Class<?> resolved;
+
+    ClassRef(String name, URL source, ClassHeader header, ClassLoader classLoader) {
+        this.name = name;
+        this.source = source;
+        this.header = header;
+        this.classLoader = classLoader;
+    }
+
+
+    /**
+     * 类的名称，与 {@link Class#getName()} 的格式一致。
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * 此类所在的类路径根。对于jar中的类为jar文件的URL，对于目录中的类为包的根目录的URL。
+     */
+    public URL getSource() {
+        return source;
+    }
+
+    /**
+     * 从class文件中解析得到的头部信息。
+     */
+    public ClassHeader getHeader() {
+        return header;
+    }
+
+    /**
+     * 是否已经被加载。
+     */
+    public boolean isResolved() {
+        return resolved != null;
+    }
+
+
+    /**
+     * 得到此引用所代表的类。第一次调用时会加载（但不会初始化）此类，之后得到同一个实例。
+     *
+     * @return 类
+     * @throws IllegalStateException 如果无法加载此类
+     */
+    public Class<?> resolve() {
+        Class<?> resolved = this.resolved;
+        if (resolved == null) {
+            try {
+                this.resolved = resolved = classLoader.loadClass(name);
+            } catch (ClassNotFoundException | LinkageError e) {
+                throw new IllegalStateException("An exception occurred during package scan: class " + name + " could not be loaded.", e);
+            }
+        }
+        return resolved;
+    }
+
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof ClassRef)) {
+            return false;
+        }
+        final ClassRef other = (ClassRef) o;
+        return name.equals(other.name) && source.toString().equals(other.source.toString());
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * name.hashCode() + source.toString().hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return "ClassRef(" + name + ", source=" + source + ")";
+    }
+}
@@ -14,28 +14,55 @@
 package love.forte.common.utils.scanner;
 
 
+import java.io.Closeable;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
-import java.net.JarURLConnection;
-import java.net.URI;
+import java.io.InputStream;
 import java.net.URISyntaxException;
 import java.net.URL;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Consumer;
 import java.util.function.Predicate;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
 
 /**
  * 类扫描器。
+ * <p>
+ * 扫描时会查找类加载器中所有包含此包的类路径根（参考 {@link ClassLoader#getResources(String)}），
+ * 因此分布在多个jar中的同一个包也能被完整的扫描。多个根中出现的同名类只会保留第一个根中的那一个。
+ * <p>
+ * 默认为串行扫描。通过 {@link #parallelism(int)} 可以开启并行扫描，
+ * 此时目录中的子目录、jar中的条目会被拆分为多个任务并交由 {@link java.util.concurrent.ForkJoinPool} 执行，
+ * 结果会被收集至同一个并发集合中。
  *
  * @author ForteScarlet
  */
-public class ClassesScanner implements Scanner<String, Class<?>> {
+public class ClassesScanner implements Scanner<String, Class<?>>, Closeable {
+
+    /**
+     * 并行扫描时，jar中的条目会被拆分为不超过此数量的区间。
+     */
+    private static final int JAR_SPLIT_THRESHOLD = 256;
 
     /**
      * 储存结果的Set集合
      */
-    private Set<Class<?>> eleStrategySet = new HashSet<>();
+    private Set<Class<?>> eleStrategySet = ConcurrentHashMap.newKeySet();
+
+    /**
+     * 多次扫描之间共享的jar索引与线程池。
+     */
+    private final ScanSession session = new ScanSession();
+
+    /**
+     * 扫描索引，可能为null。
+     */
+    private ScanIndex scanIndex;
 
     /**
      * 默认使用的类加载器
@@ -57,6 +84,30 @@ public class ClassesScanner implements Scanner<String, Class<?>> {
     }
 
 
+    /**
+     * 设置扫描的并行度。
+     *
+     * @param parallelism 并行度，小于等于1时为串行扫描。
+     */
+    @Override
+    public ClassesScanner parallelism(int parallelism) {
+        session.setParallelism(parallelism);
+        return this;
+    }
+
+
+    /**
+     * 设置扫描时使用的 {@link ScanIndex}。设置后，本地jar文件中某个包下的类的头部信息会被记录在索引中，
+     * 之后当此jar文件没有发生变化时将直接使用索引中的记录，不再打开jar文件。
+     *
+     * @param scanIndex 扫描索引，为null则不使用索引。
+     */
+    public ClassesScanner scanIndex(ScanIndex scanIndex) {
+        this.scanIndex = scanIndex;
+        return this;
+    }
+
+
     /**
      * 根据过滤规则查询
      *
@@ -64,146 +115,499 @@ public class ClassesScanner implements Scanner<String, Class<?>> {
      */
     @Override
     public ClassesScanner scan(String packageName, Predicate<Class<?>> classFilter) {
-        eleStrategySet.addAll(addClass(packageName, classFilter));
+        addClass(packageName, null, classFilter, eleStrategySet::add);
         return this;
     }
 
-    // /**
-    //  * 根据过滤规则查询, 查询全部
-    //  */
-    // @Override
-    // public ClassesScanner scan(String packageName) {
-    //     eleStrategySet.addAll(addClass(packageName, c -> true));
-    //     return this;
-    // }
+    /**
+     * 根据过滤规则查询，并在找到时直接交由 {@code consumer} 处理，而不记录在结果集合中。
+     * 并行扫描时 {@code consumer} 会在多个线程中被调用。
+     *
+     * @param classFilter class过滤规则
+     * @param consumer    匹配的类的处理函数
+     */
+    @Override
+    public ClassesScanner scan(String packageName, Predicate<Class<?>> classFilter, Consumer<? super Class<?>> consumer) {
+        addClass(packageName, null, classFilter, Objects.requireNonNull(consumer, "consumer")::accept);
+        return this;
+    }
+
+    /**
+     * 查询包下的全部类。
+     */
+    @Override
+    public ClassesScanner scan(String packageName) {
+        return scan(packageName, c -> true);
+    }
+
+    /**
+     * 根据class文件的头部信息进行过滤，仅加载符合条件的类。
+     * <p>
+     * 与 {@link #scan(String, Predicate)} 不同，此方法会直接从class文件中解析 {@link ClassHeader}，
+     * 并且只有当其通过了 {@code headerFilter} 的时候才会加载此类，因此不会加载那些被排除的类。
+     *
+     * @param packageName  包路径
+     * @param headerFilter class头部信息过滤规则
+     * @see ClassHeader
+     */
+    public ClassesScanner scanByHeader(String packageName, Predicate<ClassHeader> headerFilter) {
+        return scanByHeader(packageName, headerFilter, c -> true);
+    }
 
     /**
-     * 获取包下所有实现了superStrategy的类并加入list
+     * 根据class文件的头部信息进行过滤，仅加载符合条件的类，并对加载后的类再次进行过滤。
      *
-     * @param classFilter class过滤器
+     * @param packageName  包路径
+     * @param headerFilter class头部信息过滤规则
+     * @param classFilter  对通过了 {@code headerFilter} 并加载后的类的过滤规则
+     * @see #scanByHeader(String, Predicate)
      */
-    private Set<Class<?>> addClass(String packageName, Predicate<Class<?>> classFilter) {
-        URL url = classLoader.getResource(packageName.replace(".", "/"));
-        //如果路径为null，抛出异常
-        if (url == null) {
+    public ClassesScanner scanByHeader(String packageName, Predicate<ClassHeader> headerFilter, Predicate<Class<?>> classFilter) {
+        addClass(packageName, Objects.requireNonNull(headerFilter, "headerFilter"), classFilter, eleStrategySet::add);
+        return this;
+    }
+
+    /**
+     * 根据class文件的头部信息进行过滤，并在找到时直接交由 {@code consumer} 处理，而不记录在结果集合中。
+     * 并行扫描时 {@code consumer} 会在多个线程中被调用。
+     *
+     * @param packageName  包路径
+     * @param headerFilter class头部信息过滤规则
+     * @param classFilter  对通过了 {@code headerFilter} 并加载后的类的过滤规则
+     * @param consumer     匹配的类的处理函数
+     * @see #scanByHeader(String, Predicate, Predicate)
+     */
+    public ClassesScanner scanByHeader(String packageName, Predicate<ClassHeader> headerFilter, Predicate<Class<?>> classFilter, Consumer<? super Class<?>> consumer) {
+        addClass(packageName, Objects.requireNonNull(headerFilter, "headerFilter"), classFilter, Objects.requireNonNull(consumer, "consumer")::accept);
+        return this;
+    }
+
+    /**
+     * 根据class文件的头部信息进行过滤，并将符合条件的类作为 {@link ClassRef} 交由 {@code consumer} 处理。
+     * 扫描过程中不会加载任何类，直到调用 {@link ClassRef#resolve()}。
+     * 并行扫描时 {@code consumer} 会在多个线程中被调用。
+     *
+     * @param packageName  包路径
+     * @param headerFilter class头部信息过滤规则
+     * @param consumer     匹配的类的引用的处理函数
+     * @see ClassRef
+     */
+    public ClassesScanner scanRefs(String packageName, Predicate<ClassHeader> headerFilter, Consumer<? super ClassRef> consumer) {
+        addClassRef(packageName, Objects.requireNonNull(headerFilter, "headerFilter"), true, Objects.requireNonNull(consumer, "consumer")::accept);
+        return this;
+    }
+
+    /**
+     * 根据class文件的头部信息进行过滤，并得到符合条件的类的 {@link ClassRef}。
+     * 扫描过程中不会加载任何类，直到调用 {@link ClassRef#resolve()}。
+     *
+     * @param packageName  包路径
+     * @param headerFilter class头部信息过滤规则
+     * @return 符合条件的类的引用
+     * @see #scanRefs(String, Predicate, Consumer)
+     */
+    public List<ClassRef> getRefs(String packageName, Predicate<ClassHeader> headerFilter) {
+        final Queue<ClassRef> refs = new ConcurrentLinkedQueue<>();
+        scanRefs(packageName, headerFilter, refs::add);
+        return new ArrayList<>(refs);
+    }
+
+
+    /**
+     * 获取包下所有符合条件的类，加载后再次过滤，并交由 {@code sink} 处理。
+     * 并行扫描时 {@code sink} 会在多个线程中被调用。
+     *
+     * @param headerFilter class头部信息过滤器，为null则不进行解析
+     * @param classFilter  class过滤器
+     */
+    private void addClass(String packageName, Predicate<ClassHeader> headerFilter, Predicate<Class<?>> classFilter, Consumer<Class<?>> sink) {
+        addClassRef(packageName, headerFilter, false, ref -> {
+            final Class<?> clazz = ref.resolve();
+            if (classFilter.test(clazz)) {
+                sink.accept(clazz);
+            }
+        });
+    }
+
+    /**
+     * 获取包下所有符合条件的类的引用，并交由 {@code sink} 处理。
+     *
+     * @param headerFilter class头部信息过滤器，为null则不进行过滤
+     * @param readHeader   是否需要为每个引用解析头部信息
+     */
+    private void addClassRef(String packageName, Predicate<ClassHeader> headerFilter, boolean readHeader, Consumer<ClassRef> sink) {
+        final String pathName = packageName.replace(".", "/");
+        final List<URL> urls;
+        try {
+            urls = Collections.list(classLoader.getResources(pathName));
+        } catch (IOException e) {
+            throw new IllegalStateException("Strategy resource not found.", e);
+        }
+        //如果路径不存在，抛出异常
+        if (urls.isEmpty()) {
             throw new RuntimeException("The package path does not exist: " + packageName);
         }
 
-        //路径字符串
-        String protocol = url.getProtocol();
-        //如果是文件类型，使用文件扫描
-        if ("file".equals(protocol)) {
-            // 本地自己可见的代码
-            return findClassLocal(packageName, classFilter);
-            //如果是jar包类型，使用jar包扫描
-        } else if ("jar".equals(protocol)) {
-            // 引用jar包的代码
-            return findClassJar(packageName, classFilter);
+        // 同一个包可能分布在多个类路径根中，同名的类只保留一个
+        final Set<String> seen = urls.size() > 1 ? ConcurrentHashMap.newKeySet() : null;
+        final List<RootTask> roots = new ArrayList<>(urls.size());
+        for (URL url : urls) {
+            roots.add(new RootTask(url, packageName, pathName, headerFilter, readHeader, seen, sink));
         }
-        return Collections.emptySet();
+        session.invoke(new RootsTask(roots));
     }
 
+
     /**
-     * 本地查找
-     *
-     * @param packName
+     * 读取jar中某个包下所有class文件的头部信息，用于记录在 {@link ScanIndex} 中。
      */
-    private Set<Class<?>> findClassLocal(final String packName, final Predicate<Class<?>> classFilter) {
-        Set<Class<?>> set = new HashSet<>();
-        URI uri;
+    private List<ClassHeader> readHeaders(URL url, String pathName) {
+        final JarIndex jarIndex;
         try {
-            uri = classLoader.getResource(packName.replace(".", "/")).toURI();
-        } catch (URISyntaxException | NullPointerException e) {
-            throw new RuntimeException("Strategy resource not found.", e);
+            jarIndex = session.jarIndex(url);
+        } catch (IOException e) {
+            throw new IllegalStateException("Strategy resource not found.", e);
         }
+        final JarFile jarFile = jarIndex.getJarFile();
+        final List<ClassHeader> headers = new ArrayList<>();
+        for (JarEntry jarEntry : jarIndex.entries(pathName)) {
+            if (!isClassEntry(jarEntry.getName())) {
+                continue;
+            }
+            try (InputStream in = jarFile.getInputStream(jarEntry)) {
+                headers.add(readHeader(in));
+            } catch (IOException e) {
+                throw new IllegalStateException("An exception occurred during package scan: cannot read " + jarEntry.getName(), e);
+            }
+        }
+        return headers;
+    }
 
-        File file = new File(uri);
+    private static boolean isClassEntry(String jarEntryName) {
+        return jarEntryName.endsWith(".class") && !jarEntryName.startsWith("META-INF/") && !jarEntryName.endsWith("module-info.class");
+    }
 
-        file.listFiles(chiFile -> {
-            if (chiFile.isDirectory()) {
-                //如果是文件夹，递归扫描
-                if (packName.length() == 0) {
-                    set.addAll(findClassLocal(chiFile.getName(), classFilter));
-                } else {
-                    set.addAll(findClassLocal(packName + "." + chiFile.getName(), classFilter));
-                }
-            } else if (chiFile.getName().endsWith(".class")) {
-                Class<?> clazz;
-                try {
-                    clazz = classLoader.loadClass(packName + "." + chiFile.getName().replace(".class", ""));
-                } catch (ClassNotFoundException e) {
-                    throw new IllegalStateException("Packet scan is abnormal.", e);
+
+    /**
+     * 对每个class文件进行过滤，并将符合条件的类作为 {@link ClassRef} 交由 {@code target} 处理。
+     */
+    private final class ClassMatcher {
+        private final Predicate<ClassHeader> headerFilter;
+        /**
+         * 是否需要解析头部信息。
+         */
+        private final boolean readHeader;
+        private final URL source;
+        /**
+         * 扫描多个类路径根时已经出现过的类名，仅有一个根时为null。
+         */
+        private final Set<String> seen;
+        private final Consumer<ClassRef> target;
+
+        private ClassMatcher(Predicate<ClassHeader> headerFilter, boolean readHeader, URL source, Set<String> seen, Consumer<ClassRef> target) {
+            this.headerFilter = headerFilter;
+            this.readHeader = readHeader || headerFilter != null;
+            this.source = source;
+            this.seen = seen;
+            this.target = target;
+        }
+
+        /**
+         * 某个类名是否第一次出现。
+         */
+        private boolean claim(String className) {
+            return seen == null || seen.add(className);
+        }
+
+        void acceptFile(File file, String className) {
+            if (!claim(className)) {
+                return;
+            }
+            ClassHeader header = null;
+            if (readHeader) {
+                try (InputStream in = new FileInputStream(file)) {
+                    header = readHeader(in);
+                } catch (IOException e) {
+                    throw new IllegalStateException("Packet scan is abnormal: cannot read " + file, e);
                 }
-                if (clazz != null && classFilter.test(clazz)) {
-                    set.add(clazz);
+            }
+            accept(className, header);
+        }
+
+        void acceptEntry(JarFile jarFile, JarEntry jarEntry) {
+            String jarEntryName = jarEntry.getName();
+            if (!isClassEntry(jarEntryName)) {
+                return;
+            }
+            final String className = jarEntryName.substring(0, jarEntryName.length() - 6).replace('/', '.');
+            if (!claim(className)) {
+                return;
+            }
+            ClassHeader header = null;
+            if (readHeader) {
+                try (InputStream in = jarFile.getInputStream(jarEntry)) {
+                    header = readHeader(in);
+                } catch (IOException e) {
+                    throw new IllegalStateException("An exception occurred during package scan: cannot read " + jarEntryName, e);
                 }
             }
-            return false;
-        });
+            accept(className, header);
+        }
 
-        return set;
+        void acceptHeader(ClassHeader header) {
+            if (!claim(header.getName())) {
+                return;
+            }
+            accept(header.getName(), header);
+        }
+
+        private void accept(String className, ClassHeader header) {
+            if (headerFilter != null && !headerFilter.test(header)) {
+                return;
+            }
+            target.accept(new ClassRef(className, source, header, classLoader));
+        }
     }
 
+
     /**
-     * jar包查找
+     * 按照类加载器给出的顺序依次扫描所有的类路径根。
+     * 即使是并行扫描，各个根之间也不会并行，以保证同名的条目总是保留第一个根中的那一个；并行仅发生在根的内部。
      */
-    private Set<Class<?>> findClassJar(final String packName, final Predicate<Class<?>> classFilter) {
-        Set<Class<?>> set = new HashSet<>();
-        String pathName = packName.replace(".", "/");
-        JarFile jarFile;
-        try {
-            URL url = classLoader.getResource(pathName);
-            //noinspection AlibabaLowerCamelCaseVariableNaming,ConstantConditions
-            JarURLConnection jarURLConnection = (JarURLConnection) url.openConnection();
-            jarFile = jarURLConnection.getJarFile();
-        } catch (IOException | NullPointerException e) {
-            throw new IllegalStateException("Strategy resource not found.", e);
+    private final class RootsTask extends RecursiveAction {
+        private final List<RootTask> roots;
+
+        private RootsTask(List<RootTask> roots) {
+            this.roots = roots;
         }
 
-        Enumeration<JarEntry> jarEntries = jarFile.entries();
-        while (jarEntries.hasMoreElements()) {
-            JarEntry jarEntry = jarEntries.nextElement();
-            String jarEntryName = jarEntry.getName();
+        @Override
+        protected void compute() {
+            for (RootTask root : roots) {
+                root.compute();
+            }
+        }
+    }
+
+
+    /**
+     * 扫描某一个类路径根中的包。
+     */
+    private final class RootTask extends RecursiveAction {
+        private final URL url;
+        private final String packageName;
+        private final String pathName;
+        private final Predicate<ClassHeader> headerFilter;
+        private final boolean readHeader;
+        private final Set<String> seen;
+        private final Consumer<ClassRef> sink;
+
+        private RootTask(URL url, String packageName, String pathName, Predicate<ClassHeader> headerFilter, boolean readHeader, Set<String> seen, Consumer<ClassRef> sink) {
+            this.url = url;
+            this.packageName = packageName;
+            this.pathName = pathName;
+            this.headerFilter = headerFilter;
+            this.readHeader = readHeader;
+            this.seen = seen;
+            this.sink = sink;
+        }
 
-            if (jarEntryName.contains(pathName) && !jarEntryName.equals(pathName + "/")) {
-                //递归遍历子目录
-                if (jarEntry.isDirectory()) {
-                    String clazzName = jarEntry.getName().replace("/", ".");
-                    int endIndex = clazzName.lastIndexOf(".");
-                    String prefix = "";
-                    if (endIndex > 0) {
-                        prefix = clazzName.substring(0, endIndex);
+        @Override
+        protected void compute() {
+            //路径字符串
+            String protocol = url.getProtocol();
+            //如果是文件类型，使用文件扫描
+            if ("file".equals(protocol)) {
+                // 本地自己可见的代码
+                final File directory;
+                final URL source;
+                try {
+                    directory = new File(url.toURI());
+                    File root = directory;
+                    for (int i = pathName.isEmpty() ? 0 : pathName.split("/").length; i > 0 && root != null; i--) {
+                        root = root.getParentFile();
                     }
-                    set.addAll(findClassJar(prefix, classFilter));
+                    source = (root == null ? directory : root).toURI().toURL();
+                } catch (URISyntaxException | IOException e) {
+                    throw new RuntimeException("Strategy resource not found.", e);
+                }
+                final ClassMatcher matcher = new ClassMatcher(headerFilter, readHeader, source, seen, sink);
+                new LocalTask(directory, packageName, matcher).compute();
+                //如果是jar包类型，使用jar包扫描
+            } else if ("jar".equals(protocol)) {
+                // 引用jar包的代码
+                final ClassMatcher matcher;
+                try {
+                    matcher = new ClassMatcher(headerFilter, readHeader, JarIndex.jarFileUrl(url), seen, sink);
+                } catch (IOException e) {
+                    throw new IllegalStateException("Strategy resource not found.", e);
                 }
-                if (jarEntry.getName().endsWith(".class")) {
-                    Class<?> clazz;
+                final ScanIndex scanIndex = ClassesScanner.this.scanIndex;
+                if (scanIndex != null) {
+                    final File jar;
                     try {
-                        clazz = classLoader.loadClass(jarEntry.getName().replace("/", ".").replace(".class", ""));
-                    } catch (ClassNotFoundException e) {
-                        throw new IllegalStateException("An exception occurred during package scan: class could not be loaded.", e);
+                        jar = JarIndex.localFile(url);
+                    } catch (IOException e) {
+                        throw new IllegalStateException("Strategy resource not found.", e);
                     }
-                    //判断，如果符合，添加
-                    if (clazz != null && classFilter.test(clazz)) {
-                        set.add(clazz);
+                    if (jar != null) {
+                        final List<ClassHeader> headers = scanIndex.classes(jar, pathName, () -> readHeaders(url, pathName));
+                        new HeaderTask(headers, 0, headers.size(), matcher).compute();
+                        return;
                     }
                 }
+                final JarIndex jarIndex;
+                try {
+                    jarIndex = session.jarIndex(url);
+                } catch (IOException e) {
+                    throw new IllegalStateException("Strategy resource not found.", e);
+                }
+                final List<JarEntry> entries = jarIndex.entries(pathName);
+                new JarTask(jarIndex.getJarFile(), entries, 0, entries.size(), matcher).compute();
             }
         }
-        return set;
     }
 
 
+    /**
+     * 本地查找。并行时每个子目录作为一个单独的任务。
+     */
+    private final class LocalTask extends RecursiveAction {
+        private final File directory;
+        private final String packName;
+        private final ClassMatcher matcher;
+
+        private LocalTask(File directory, String packName, ClassMatcher matcher) {
+            this.directory = directory;
+            this.packName = packName;
+            this.matcher = matcher;
+        }
+
+        @Override
+        protected void compute() {
+            final File[] files = directory.listFiles();
+            if (files == null) {
+                return;
+            }
+            List<LocalTask> subtasks = null;
+            for (File chiFile : files) {
+                final String name = chiFile.getName();
+                if (chiFile.isDirectory()) {
+                    //如果是文件夹，递归扫描
+                    final LocalTask subtask = new LocalTask(chiFile, packName.isEmpty() ? name : packName + "." + name, matcher);
+                    if (session.isParallel()) {
+                        if (subtasks == null) {
+                            subtasks = new ArrayList<>();
+                        }
+                        subtasks.add(subtask);
+                    } else {
+                        subtask.compute();
+                    }
+                } else if (name.endsWith(".class")) {
+                    final String simpleName = name.substring(0, name.length() - 6);
+                    matcher.acceptFile(chiFile, packName.isEmpty() ? simpleName : packName + "." + simpleName);
+                }
+            }
+            if (subtasks != null) {
+                invokeAll(subtasks);
+            }
+        }
+    }
+
+
+    /**
+     * jar包查找。条目通过 {@link JarIndex} 得到，并行时按照区间拆分。
+     */
+    private final class JarTask extends RecursiveAction {
+        private final JarFile jarFile;
+        private final List<JarEntry> entries;
+        private final int from;
+        private final int to;
+        private final ClassMatcher matcher;
+
+        private JarTask(JarFile jarFile, List<JarEntry> entries, int from, int to, ClassMatcher matcher) {
+            this.jarFile = jarFile;
+            this.entries = entries;
+            this.from = from;
+            this.to = to;
+            this.matcher = matcher;
+        }
+
+        @Override
+        protected void compute() {
+            if (session.isParallel() && to - from > JAR_SPLIT_THRESHOLD) {
+                final int mid = (from + to) >>> 1;
+                invokeAll(new JarTask(jarFile, entries, from, mid, matcher), new JarTask(jarFile, entries, mid, to, matcher));
+                return;
+            }
+            for (int i = from; i < to; i++) {
+                matcher.acceptEntry(jarFile, entries.get(i));
+            }
+        }
+    }
+
+
+    /**
+     * 索引中记录的头部信息查找。并行时按照区间拆分。
+     */
+    private final class HeaderTask extends RecursiveAction {
+        private final List<ClassHeader> headers;
+        private final int from;
+        private final int to;
+        private final ClassMatcher matcher;
+
+        private HeaderTask(List<ClassHeader> headers, int from, int to, ClassMatcher matcher) {
+            this.headers = headers;
+            this.from = from;
+            this.to = to;
+            this.matcher = matcher;
+        }
+
+        @Override
+        protected void compute() {
+            if (session.isParallel() && to - from > JAR_SPLIT_THRESHOLD) {
+                final int mid = (from + to) >>> 1;
+                invokeAll(new HeaderTask(headers, from, mid, matcher), new HeaderTask(headers, mid, to, matcher));
+                return;
+            }
+            for (int i = from; i < to; i++) {
+                matcher.acceptHeader(headers.get(i));
+            }
+        }
+    }
+
+
+    /**
+     * 关闭扫描过程中打开的jar文件与线程池。之后依然可以继续扫描。
+     */
+    @Override
+    public void close() {
+        session.close();
+    }
+
+
+    /**
+     * 解析class文件的头部信息。
+     */
+    private static ClassHeader readHeader(InputStream in) throws IOException {
+        try {
+            return ClassHeader.read(in);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalStateException("An exception occurred during package scan: malformed class file.", e);
+        }
+    }
+
 
     /**
-     * 获取最终的扫描结果，并作为一个集合返回。
+     * 获取最终的扫描结果，并作为一个集合返回。同时会关闭扫描过程中打开的jar文件。
      *
      * @return 最终的扫描结果
      */
     @Override
     public Collection<Class<?>> getCollection() {
+        close();
         Set<Class<?>> classSet = this.eleStrategySet;
-        this.eleStrategySet = new HashSet<>();
+        this.eleStrategySet = ConcurrentHashMap.newKeySet();
         return classSet;
     }
-}
\ No newline at end of file
+}
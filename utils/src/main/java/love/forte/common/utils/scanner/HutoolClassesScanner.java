@@ -17,6 +17,7 @@ import cn.hutool.core.lang.ClassScanner;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
+import java.util.function.Consumer;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
@@ -55,6 +56,25 @@ public class HutoolClassesScanner implements Scanner<String, Class<?>> {
         return this;
     }
 
+    /**
+     * 立即扫描某个路径下符合匹配规则的目标，并在扫描的过程中交由 {@code consumer} 处理，结果不会被记录。
+     *
+     * @param path     路径。
+     * @param filter   匹配规则。
+     * @param consumer 匹配目标的处理函数。
+     * @return 扫描器本身，链式调用。
+     */
+    @Override
+    public HutoolClassesScanner scan(String path, Predicate<Class<?>> filter, Consumer<? super Class<?>> consumer) {
+        new ClassScanner(path, c -> {
+            if (filter.test(c)) {
+                consumer.accept(c);
+            }
+            return false;
+        }).scan();
+        return this;
+    }
+
     /**
      * 获取最终的扫描结果，并作为一个集合返回。
      *
@@ -0,0 +1,155 @@
+/*
+ * Copyright (c) 2021. ForteScarlet All rights reserved.
+ * Project  parent
+ * File     JarIndex.java
+ *
+ * You can contact the author through the following channels:
+ * github https://github.com/ForteScarlet
+ * gitee  https://gitee.com/ForteScarlet
+ * email  ForteScarlet@163.com
+ * QQ     1149159218
+ */
+
+package love.forte.common.utils.scanner;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.net.JarURLConnection;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.util.*;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+/**
+ * 一个jar文件中条目的目录索引。
+ * <p>
+ * 构建时仅遍历一次jar中的所有条目，并将其中的文件按照所在目录进行分组，目录按照名称排序。
+ * 之后获取某个目录（包括其子目录）下的条目仅需要一次范围查找，不需要再次遍历整个jar。
+ * <p>
+ * 索引持有其所使用的 {@link JarFile}。对于本地的jar文件，会打开一个独立的 {@link JarFile} 并在 {@link #close()} 时关闭；
+ * 否则使用 {@link JarURLConnection#getJarFile()} 得到的（可能被共享的）实例，不会将其关闭。
+ *
+ * @author ForteScarlet
+ */
+final class JarIndex implements Closeable {
+
+    private final JarFile jarFile;
+
+    /**
+     * 是否需要由此索引关闭 {@link #jarFile}。
+     */
+    private final boolean owned;
+
+    /**
+     * 目录 -> 直接位于此目录中的文件条目。目录以 {@code /} 结尾，根目录为空字符串。
+     */
+    private final NavigableMap<String, List<JarEntry>> directories;
+
+    private JarIndex(JarFile jarFile, boolean owned) {
+        this.jarFile = jarFile;
+        this.owned = owned;
+        final NavigableMap<String, List<JarEntry>> directories = new TreeMap<>();
+        final Enumeration<JarEntry> entries = jarFile.entries();
+        while (entries.hasMoreElements()) {
+            final JarEntry entry = entries.nextElement();
+            if (entry.isDirectory()) {
+                continue;
+            }
+            final String name = entry.getName();
+            final String directory = name.substring(0, name.lastIndexOf('/') + 1);
+            directories.computeIfAbsent(directory, d -> new ArrayList<>()).add(entry);
+        }
+        this.directories = directories;
+    }
+
+
+    /**
+     * 通过一个 {@code jar:} 协议的URL打开其所在jar文件的索引。
+     *
+     * @param url jar中某个条目的URL，例如 {@code jar:file:/a.jar!/a/b}
+     */
+    static JarIndex open(URL url) throws IOException {
+        final JarURLConnection connection = (JarURLConnection) url.openConnection();
+        final File file = toFile(connection.getJarFileURL());
+        if (file != null) {
+            return new JarIndex(new JarFile(file), true);
+        }
+        return new JarIndex(connection.getJarFile(), false);
+    }
+
+
+    /**
+     * 得到某个jar中条目所在的本地jar文件。
+     *
+     * @param url jar中某个条目的URL，例如 {@code jar:file:/a.jar!/a/b}
+     * @return 本地jar文件。如果jar文件不在本地，得到null。
+     */
+    static File localFile(URL url) throws IOException {
+        return toFile(jarFileUrl(url));
+    }
+
+    private static File toFile(URL jarFileUrl) {
+        if ("file".equals(jarFileUrl.getProtocol())) {
+            try {
+                return new File(jarFileUrl.toURI());
+            } catch (URISyntaxException | IllegalArgumentException ignored) {
+                // 无法转化为本地文件
+            }
+        }
+        return null;
+    }
+
+
+    /**
+     * 得到用于标识此jar文件的key，即 {@link JarURLConnection#getJarFileURL()} 的字符串形式。
+     */
+    static String keyOf(URL url) throws IOException {
+        return jarFileUrl(url).toString();
+    }
+
+
+    /**
+     * 得到某个jar中条目所在jar文件的URL，例如 {@code jar:file:/a.jar!/a/b} -> {@code file:/a.jar}。
+     */
+    static URL jarFileUrl(URL url) throws IOException {
+        return ((JarURLConnection) url.openConnection()).getJarFileURL();
+    }
+
+
+    JarFile getJarFile() {
+        return jarFile;
+    }
+
+
+    /**
+     * 得到某个目录及其所有子目录中的文件条目。
+     *
+     * @param directory 目录，例如 {@code a/b}。空字符串代表整个jar。
+     */
+    List<JarEntry> entries(String directory) {
+        final String prefix = directory.isEmpty() || directory.endsWith("/") ? directory : directory + '/';
+        final Collection<List<JarEntry>> matched = prefix.isEmpty()
+                ? directories.values()
+                : directories.subMap(prefix, true, prefix + Character.MAX_VALUE, false).values();
+
+        int size = 0;
+        for (List<JarEntry> entries : matched) {
+            size += entries.size();
+        }
+        final List<JarEntry> result = new ArrayList<>(size);
+        for (List<JarEntry> entries : matched) {
+            result.addAll(entries);
+        }
+        return result;
+    }
+
+
+    @Override
+    public void close() throws IOException {
+        if (owned) {
+            jarFile.close();
+        }
+    }
+}
@@ -14,37 +14,56 @@
 package love.forte.common.utils.scanner;
 
 
-import cn.hutool.core.collection.EnumerationIter;
-
+import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
-import java.net.JarURLConnection;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
+import java.util.ArrayList;
 import java.util.Collections;
-import java.util.Enumeration;
-import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Consumer;
 import java.util.function.Predicate;
 import java.util.jar.JarEntry;
-import java.util.jar.JarFile;
-import java.util.stream.Stream;
 
 
 /**
  * 资源文件扫描器。
- *
- * // 需要优化。
+ * <p>
+ * 扫描时会查找类加载器中所有包含此路径的类路径根（参考 {@link ClassLoader#getResources(String)}），
+ * 多个根中出现的相对路径相同的资源只会保留第一个根中的那一个。
+ * <p>
+ * 默认为串行扫描。通过 {@link #parallelism(int)} 可以开启并行扫描，
+ * 此时目录中的子目录、jar中的条目会被拆分为多个任务并交由 {@link java.util.concurrent.ForkJoinPool} 执行。
  *
  * @author ForteScarlet
  */
-public class ResourcesScanner implements Scanner<String, URI> {
+public class ResourcesScanner implements Scanner<String, URI>, Closeable {
+
+    /**
+     * 并行扫描时，jar中的条目会被拆分为不超过此数量的区间。
+     */
+    private static final int JAR_SPLIT_THRESHOLD = 512;
 
     /**
      * 储存结果的Set集合。
      */
-    private Set<URI> eleStrategySet = new HashSet<>();
+    private Set<URI> eleStrategySet = ConcurrentHashMap.newKeySet();
+
+    /**
+     * 多次扫描之间共享的jar索引与线程池。
+     */
+    private final ScanSession session = new ScanSession();
+
+    /**
+     * 扫描索引，可能为null。
+     */
+    private ScanIndex scanIndex;
 
     /**
      * 默认使用的类加载器。
@@ -66,6 +85,30 @@ public class ResourcesScanner implements Scanner<String, URI> {
     }
 
 
+    /**
+     * 设置扫描的并行度。
+     *
+     * @param parallelism 并行度，小于等于1时为串行扫描。
+     */
+    @Override
+    public ResourcesScanner parallelism(int parallelism) {
+        session.setParallelism(parallelism);
+        return this;
+    }
+
+
+    /**
+     * 设置扫描时使用的 {@link ScanIndex}。设置后，本地jar文件中某个目录下的资源名称会被记录在索引中，
+     * 之后当此jar文件没有发生变化时将直接使用索引中的记录，不再打开jar文件。
+     *
+     * @param scanIndex 扫描索引，为null则不使用索引。
+     */
+    public ResourcesScanner scanIndex(ScanIndex scanIndex) {
+        this.scanIndex = scanIndex;
+        return this;
+    }
+
+
     /**
      * 根据过滤规则查询
      *
@@ -76,149 +119,306 @@ public class ResourcesScanner implements Scanner<String, URI> {
         if (path == null || path.length() == 0) {
             path = "." + File.separator;
         }
-        eleStrategySet.addAll(addFile(path, classFilter));
+        addFile(path, classFilter, eleStrategySet::add);
         return this;
     }
 
 
     /**
-     * 获取包下所有
+     * 根据过滤规则查询，并在找到时直接交由 {@code consumer} 处理，而不记录在结果集合中。
+     * 并行扫描时 {@code consumer} 会在多个线程中被调用。
+     *
+     * @param filter   过滤规则
+     * @param consumer 匹配的资源的处理函数
+     */
+    @Override
+    public ResourcesScanner scan(String path, Predicate<URI> filter, Consumer<? super URI> consumer) {
+        if (path == null || path.length() == 0) {
+            path = "." + File.separator;
+        }
+        addFile(path, filter, Objects.requireNonNull(consumer, "consumer")::accept);
+        return this;
+    }
+
+
+    /**
+     * 查询路径下的全部资源。
+     */
+    @Override
+    public ResourcesScanner scan(String path) {
+        return scan(path, u -> true);
+    }
+
+
+    /**
+     * 获取路径下所有符合条件的资源，并交由 {@code sink} 处理。
      *
      * @param filter 过滤器
      */
-    private Set<URI> addFile(String path, Predicate<URI> filter) {
-        URL url = classLoader.getResource(path);
-        //如果路径为null，抛出异常
-        if (url == null) {
+    private void addFile(String path, Predicate<URI> filter, Consumer<URI> sink) {
+        final List<URL> urls;
+        try {
+            urls = Collections.list(classLoader.getResources(path));
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to scan path: " + path, e);
+        }
+        //如果路径不存在，抛出异常
+        if (urls.isEmpty()) {
             throw new RuntimeException("Resource path does not exist: " + path);
         }
 
+        final String directory = jarDirectory(path);
+        // 同一个目录可能分布在多个类路径根中，同名的资源只保留一个
+        final Set<String> seen = urls.size() > 1 ? ConcurrentHashMap.newKeySet() : null;
+        final List<RootTask> roots = new ArrayList<>(urls.size());
+        for (URL url : urls) {
+            roots.add(new RootTask(url, path, directory, filter, seen, sink));
+        }
+        try {
+            session.invoke(new RootsTask(roots));
+        } catch (Exception e) {
+            throw new RuntimeException("Unable to scan path: " + path, e);
+        }
+    }
+
 
-        //路径字符串
-        String protocol = url.getProtocol();
+    /**
+     * 得到jar中某个目录下所有条目的名称。
+     */
+    private List<String> entryNames(URL url, String directory) {
+        final JarIndex jarIndex;
         try {
+            jarIndex = session.jarIndex(url);
+        } catch (IOException | ClassCastException e) {
+            throw new RuntimeException("Jar resource not found: " + url, e);
+        }
+        final List<JarEntry> entries = jarIndex.entries(directory);
+        final List<String> names = new ArrayList<>(entries.size());
+        for (JarEntry entry : entries) {
+            names.add(entry.getName());
+        }
+        return names;
+    }
+
+
+    /**
+     * 将资源路径转化为jar中的目录，例如 {@code ./a/b/} -> {@code a/b}。
+     */
+    private static String jarDirectory(String path) {
+        String directory = path.replace(File.separatorChar, '/');
+        while (directory.startsWith("./")) {
+            directory = directory.substring(2);
+        }
+        if (".".equals(directory) || "/".equals(directory)) {
+            return "";
+        }
+        while (directory.startsWith("/")) {
+            directory = directory.substring(1);
+        }
+        return directory;
+    }
+
+
+    /**
+     * 某个条目名称是否第一次出现。
+     *
+     * @param seen 扫描多个类路径根时已经出现过的条目名称，仅有一个根时为null。
+     */
+    private static boolean claim(Set<String> seen, String entryName) {
+        return seen == null || seen.add(entryName);
+    }
+
+
+    /**
+     * 按照类加载器给出的顺序依次扫描所有的类路径根。
+     * 即使是并行扫描，各个根之间也不会并行，以保证同名的条目总是保留第一个根中的那一个；并行仅发生在根的内部。
+     */
+    private final class RootsTask extends RecursiveAction {
+        private final List<RootTask> roots;
+
+        private RootsTask(List<RootTask> roots) {
+            this.roots = roots;
+        }
+
+        @Override
+        protected void compute() {
+            for (RootTask root : roots) {
+                root.compute();
+            }
+        }
+    }
+
+
+    /**
+     * 扫描某一个类路径根中的目录。
+     */
+    private final class RootTask extends RecursiveAction {
+        private final URL url;
+        private final String path;
+        private final String directory;
+        private final Predicate<URI> filter;
+        private final Set<String> seen;
+        private final Consumer<URI> sink;
+
+        private RootTask(URL url, String path, String directory, Predicate<URI> filter, Set<String> seen, Consumer<URI> sink) {
+            this.url = url;
+            this.path = path;
+            this.directory = directory;
+            this.filter = filter;
+            this.seen = seen;
+            this.sink = sink;
+        }
+
+        @Override
+        protected void compute() {
+            //路径字符串
+            String protocol = url.getProtocol();
             //如果是文件类型，使用文件扫描
             if ("file".equals(protocol)) {
                 // 本地自己可见的代码
-                return findLocal(path, filter);
+                final File file;
+                try {
+                    file = new File(url.toURI());
+                } catch (URISyntaxException e) {
+                    throw new RuntimeException("File resource not found: " + path, e);
+                }
+                if (file.isDirectory()) {
+                    new LocalTask(file, directory.isEmpty() ? "" : directory + '/', filter, seen, sink).compute();
+                }
                 //如果是jar包类型，使用jar包扫描
             } else if ("jar".equals(protocol)) {
                 // 引用jar包的代码
-                return findJar(path, filter);
+                final ScanIndex scanIndex = ResourcesScanner.this.scanIndex;
+                final File jar;
+                try {
+                    jar = scanIndex == null ? null : JarIndex.localFile(url);
+                } catch (IOException e) {
+                    throw new RuntimeException("Jar resource not found: " + url, e);
+                }
+                final List<String> names = jar == null
+                        ? entryNames(url, directory)
+                        : scanIndex.resources(jar, directory, () -> entryNames(url, directory));
+                new JarTask(names, 0, names.size(), filter, seen, sink).compute();
             }
-        }catch (Exception e){
-            throw new RuntimeException("Unable to scan path: " + path, e);
         }
-        return Collections.emptySet();
     }
 
+
     /**
-     * 本地查找
+     * 本地查找。并行时每个子目录作为一个单独的任务。
      */
-    private Set<URI> findLocal(final String path, final Predicate<URI> filter) {
-        Set<URI> set = new HashSet<>();
-        URI uri;
-        try {
-            uri = classLoader.getResource(path).toURI();
-        } catch (NullPointerException | URISyntaxException e) {
-            throw new RuntimeException("File resource not found: " + path, e);
+    private final class LocalTask extends RecursiveAction {
+        private final File directory;
+        /**
+         * 此目录在类路径根中的相对路径，以 {@code /} 结尾，根目录为空字符串。
+         */
+        private final String prefix;
+        private final Predicate<URI> filter;
+        private final Set<String> seen;
+        private final Consumer<URI> sink;
+
+        private LocalTask(File directory, String prefix, Predicate<URI> filter, Set<String> seen, Consumer<URI> sink) {
+            this.directory = directory;
+            this.prefix = prefix;
+            this.filter = filter;
+            this.seen = seen;
+            this.sink = sink;
         }
-        File file = new File(uri);
-        if (file.isDirectory()) {
-            file.listFiles(chiFile -> {
+
+        @Override
+        protected void compute() {
+            final File[] files = directory.listFiles();
+            if (files == null) {
+                return;
+            }
+            List<LocalTask> subtasks = null;
+            for (File chiFile : files) {
                 if (chiFile.isDirectory()) {
                     //如果是文件夹，递归扫描
-                    if (path.length() == 0) {
-                        set.addAll(findLocal(chiFile.getName(), filter));
+                    final LocalTask subtask = new LocalTask(chiFile, prefix + chiFile.getName() + '/', filter, seen, sink);
+                    if (session.isParallel()) {
+                        if (subtasks == null) {
+                            subtasks = new ArrayList<>();
+                        }
+                        subtasks.add(subtask);
                     } else {
-                        set.addAll(findLocal(path + File.separator + chiFile.getName(), filter));
+                        subtask.compute();
                     }
-                } else {
+                } else if (claim(seen, prefix + chiFile.getName())) {
                     final URI childUri = chiFile.toURI();
                     if (filter.test(childUri)) {
-                        set.add(childUri);
+                        sink.accept(childUri);
                     }
                 }
-                return true;
-            });
+            }
+            if (subtasks != null) {
+                invokeAll(subtasks);
+            }
         }
-        return set;
     }
 
+
     /**
-     * jar包查找
-     *
-     * @param path
+     * jar包查找。条目名称通过 {@link JarIndex} 或者 {@link ScanIndex} 得到，并行时按照区间拆分。
      */
-    private Set<URI> findJar(final String path, final Predicate<URI> filter) {
-        Set<URI> set = new HashSet<>();
-        JarFile jarFile;
-        try {
-            URL url = classLoader.getResource(path);
-            JarURLConnection jarURLConnection = (JarURLConnection) url.openConnection();
-            jarFile = jarURLConnection.getJarFile();
-        } catch (NullPointerException | IOException | ClassCastException e) {
-            throw new RuntimeException("Jar resource not found: " + path, e);
-        }
+    private final class JarTask extends RecursiveAction {
+        private final List<String> entries;
+        private final int from;
+        private final int to;
+        private final Predicate<URI> filter;
+        private final Set<String> seen;
+        private final Consumer<URI> sink;
 
-        // jarFile
+        private JarTask(List<String> entries, int from, int to, Predicate<URI> filter, Set<String> seen, Consumer<URI> sink) {
+            this.entries = entries;
+            this.from = from;
+            this.to = to;
+            this.filter = filter;
+            this.seen = seen;
+            this.sink = sink;
+        }
 
-        try {
-            // 遍历
-            Enumeration<JarEntry> entries = jarFile.entries();
-            for (JarEntry jarEntry : new EnumerationIter<>(entries)) {
-                String jarEntryName = jarEntry.getName();
-                if (!jarEntry.isDirectory() && (jarEntryName.contains(path) && !jarEntryName.equals(path + File.separator))) {
-                    // 不是目录，且符合要求
-                    URI entryUri = URI.create(jarEntry.getName());
-                    if (filter.test(entryUri)) {
-                        set.add(entryUri);
-                    }
+        @Override
+        protected void compute() {
+            if (session.isParallel() && to - from > JAR_SPLIT_THRESHOLD) {
+                final int mid = (from + to) >>> 1;
+                invokeAll(new JarTask(entries, from, mid, filter, seen, sink), new JarTask(entries, mid, to, filter, seen, sink));
+                return;
+            }
+            for (int i = from; i < to; i++) {
+                final String entryName = entries.get(i);
+                if (!claim(seen, entryName)) {
+                    continue;
+                }
+                URI entryUri = URI.create(entryName);
+                if (filter.test(entryUri)) {
+                    sink.accept(entryUri);
                 }
             }
-
-            // jarFile.stream().forEach(jarEntry -> {
-
-                // if (jarEntryName.contains(path) && !jarEntryName.equals(path + File.separator)) {
-                //     //递归遍历子目录
-                //     if (jarEntry.isDirectory()) {
-                //         String jarFileName = jarEntry.getName();
-                //         int endIndex = jarFileName.lastIndexOf(File.separator);
-                //         String prefix;
-                //         if (endIndex > 0) {
-                //             prefix = jarFileName.substring(0, endIndex);
-                //             set.addAll(findJar(prefix, filter));
-                //         }
-                //     }else{
-                //         final URI uri = URI.create(jarEntry.getName());
-                //         //判断，如果符合，添加
-                //         if (filter.test(uri)) {
-                //             set.add(uri);
-                //         }
-                //     }
-                // }
-            // });
-        } catch (Exception e) {
-            throw new RuntimeException("Cannot open jar file " + jarFile + " from path " + path, e);
         }
+    }
 
 
-
-        return set;
+    /**
+     * 关闭扫描过程中打开的jar文件与线程池。之后依然可以继续扫描。
+     */
+    @Override
+    public void close() {
+        session.close();
     }
 
 
-
     /**
-     * 获取最终的扫描结果，并作为一个集合返回。
+     * 获取最终的扫描结果，并作为一个集合返回。同时会关闭扫描过程中打开的jar文件。
      *
      * @return 最终的扫描结果
      */
     @Override
     public Set<URI> getCollection() {
+        close();
         Set<URI> uriSet = this.eleStrategySet;
         // reset.
-        eleStrategySet = new HashSet<>();
+        eleStrategySet = ConcurrentHashMap.newKeySet();
         return uriSet;
     }
-}
\ No newline at end of file
+}
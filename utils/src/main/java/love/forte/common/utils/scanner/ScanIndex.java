@@ -0,0 +1,326 @@
+/*
+ * Copyright (c) 2021. ForteScarlet All rights reserved.
+ * Project  parent
+ * File     ScanIndex.java
+ *
+ * You can contact the author through the following channels:
+ * github https://github.com/ForteScarlet
+ * gitee  https://gitee.com/ForteScarlet
+ * email  ForteScarlet@163.com
+ * QQ     1149159218
+ */
+
+package love.forte.common.utils.scanner;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * 保存在磁盘上的扫描索引。
+ * <p>
+ * 对于每个jar文件，以其路径、大小与最后修改时间作为标识，记录其中某个包路径下所有类的 {@link ClassHeader}，
+ * 以及某个目录下所有资源文件的名称。当jar文件没有发生变化时，{@link ClassesScanner} 与 {@link ResourcesScanner}
+ * 会直接使用索引中的记录，而不再打开、遍历jar文件或者读取class文件；发生变化的jar文件会被重新扫描并更新记录。
+ * <p>
+ * 索引中记录的是某个路径下的 <b>全部</b> 条目而不是过滤后的结果，因此同一个索引可以被不同的过滤规则使用。
+ * 本地目录（例如 {@code target/classes}）中的内容可能随时发生变化，因此不会被记录。
+ * <p>
+ * 索引会在 {@link #load(Path)} 时读入内存，通过 {@link #save()} 写回文件。文件不存在、无法读取或者版本不一致时得到一个空的索引。
+ *
+ * <pre>{@code
+ * ScanIndex index = ScanIndex.load(Paths.get("scan.idx"));
+ * Collection<Class<?>> classes = new ClassesScanner().scanIndex(index).scanByHeader("a.b", h -> h.hasAnnotation(Beans.class)).getCollection();
+ * index.save();
+ * }</pre>
+ *
+ * @author ForteScarlet
+ * @see ClassesScanner#scanIndex(ScanIndex)
+ * @see ResourcesScanner#scanIndex(ScanIndex)
+ */
+public final class ScanIndex {
+
+    private static final int MAGIC = 0x46534349;
+
+    private static final int VERSION = 1;
+
+    private final Path file;
+
+    /**
+     * jar文件路径 -> 记录。
+     */
+    private final ConcurrentMap<String, Root> roots;
+
+    private volatile boolean dirty;
+
+    private ScanIndex(Path file, ConcurrentMap<String, Root> roots) {
+        this.file = file;
+        this.roots = roots;
+    }
+
+
+    /**
+     * 读取索引文件。
+     *
+     * @param file 索引文件。不存在时得到一个空的索引，并在 {@link #save()} 时创建。
+     * @return 索引
+     */
+    public static ScanIndex load(Path file) {
+        final ConcurrentMap<String, Root> roots = new ConcurrentHashMap<>();
+        boolean dirty = false;
+        if (Files.isRegularFile(file)) {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+                read(in, roots);
+            } catch (IOException | RuntimeException e) {
+                // 损坏或不兼容的索引，重新构建
+                roots.clear();
+                dirty = true;
+            }
+        }
+        final ScanIndex index = new ScanIndex(file, roots);
+        index.dirty = dirty;
+        return index;
+    }
+
+
+    /**
+     * 如果索引发生了变化，将其写回文件。写入时会先写入一个临时文件，然后替换原文件。
+     *
+     * @throws IOException 写入失败
+     */
+    public synchronized void save() throws IOException {
+        if (!dirty) {
+            return;
+        }
+        dirty = false;
+        final Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        final Path temp = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                write(out);
+            }
+            try {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException | RuntimeException e) {
+            dirty = true;
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+    }
+
+
+    /**
+     * 索引中记录的jar文件数量。
+     */
+    public int size() {
+        return roots.size();
+    }
+
+    /**
+     * 移除所有记录。
+     */
+    public void clear() {
+        roots.clear();
+        dirty = true;
+    }
+
+
+    /**
+     * 得到某个jar文件中某个包路径（包括子包）下所有类的头部信息。jar文件发生变化或者没有记录时通过 {@code reader} 读取并记录。
+     *
+     * @param jar    jar文件
+     * @param path   包路径，例如 {@code a/b}
+     * @param reader 读取头部信息的函数
+     */
+    List<ClassHeader> classes(File jar, String path, Supplier<List<ClassHeader>> reader) {
+        final Root root = root(jar);
+        List<ClassHeader> headers = root.classes.get(path);
+        if (headers == null) {
+            headers = Collections.unmodifiableList(new ArrayList<>(reader.get()));
+            final List<ClassHeader> old = root.classes.putIfAbsent(path, headers);
+            if (old != null) {
+                return old;
+            }
+            dirty = true;
+        }
+        return headers;
+    }
+
+
+    /**
+     * 得到某个jar文件中某个目录（包括子目录）下所有资源的条目名称。jar文件发生变化或者没有记录时通过 {@code reader} 读取并记录。
+     *
+     * @param jar    jar文件
+     * @param path   目录，例如 {@code a/b}
+     * @param reader 读取条目名称的函数
+     */
+    List<String> resources(File jar, String path, Supplier<List<String>> reader) {
+        final Root root = root(jar);
+        List<String> names = root.resources.get(path);
+        if (names == null) {
+            names = Collections.unmodifiableList(new ArrayList<>(reader.get()));
+            final List<String> old = root.resources.putIfAbsent(path, names);
+            if (old != null) {
+                return old;
+            }
+            dirty = true;
+        }
+        return names;
+    }
+
+
+    /**
+     * 得到jar文件的记录。如果jar文件发生了变化，则以一个新的记录替换。
+     */
+    private Root root(File jar) {
+        final String key = jar.getAbsolutePath();
+        final long size = jar.length();
+        final long lastModified = jar.lastModified();
+        Root root = roots.get(key);
+        if (root == null || !root.matches(size, lastModified)) {
+            final Root newRoot = new Root(size, lastModified);
+            root = roots.merge(key, newRoot, (old, n) -> old.matches(size, lastModified) ? old : n);
+            if (root == newRoot) {
+                dirty = true;
+            }
+        }
+        return root;
+    }
+
+
+    private static final class Root {
+        private final long size;
+        private final long lastModified;
+        private final ConcurrentMap<String, List<ClassHeader>> classes = new ConcurrentHashMap<>();
+        private final ConcurrentMap<String, List<String>> resources = new ConcurrentHashMap<>();
+
+        private Root(long size, long lastModified) {
+            this.size = size;
+            this.lastModified = lastModified;
+        }
+
+        private boolean matches(long size, long lastModified) {
+            return this.size == size && this.lastModified == lastModified;
+        }
+    }
+
+
+    //region 序列化
+
+    private void write(DataOutputStream out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        final Map<String, Root> roots = new TreeMap<>(this.roots);
+        out.writeInt(roots.size());
+        for (Map.Entry<String, Root> entry : roots.entrySet()) {
+            final Root root = entry.getValue();
+            out.writeUTF(entry.getKey());
+            out.writeLong(root.size);
+            out.writeLong(root.lastModified);
+
+            out.writeInt(root.classes.size());
+            for (Map.Entry<String, List<ClassHeader>> classes : root.classes.entrySet()) {
+                out.writeUTF(classes.getKey());
+                out.writeInt(classes.getValue().size());
+                for (ClassHeader header : classes.getValue()) {
+                    writeHeader(out, header);
+                }
+            }
+
+            out.writeInt(root.resources.size());
+            for (Map.Entry<String, List<String>> resources : root.resources.entrySet()) {
+                out.writeUTF(resources.getKey());
+                out.writeInt(resources.getValue().size());
+                for (String name : resources.getValue()) {
+                    out.writeUTF(name);
+                }
+            }
+        }
+    }
+
+    private static void read(DataInputStream in, Map<String, Root> roots) throws IOException {
+        if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+            throw new IOException("Incompatible scan index.");
+        }
+        final int rootCount = in.readInt();
+        for (int i = 0; i < rootCount; i++) {
+            final String key = in.readUTF();
+            final Root root = new Root(in.readLong(), in.readLong());
+
+            final int classPaths = in.readInt();
+            for (int j = 0; j < classPaths; j++) {
+                final String path = in.readUTF();
+                final int count = in.readInt();
+                final List<ClassHeader> headers = new ArrayList<>(count);
+                for (int k = 0; k < count; k++) {
+                    headers.add(readHeader(in));
+                }
+                root.classes.put(path, Collections.unmodifiableList(headers));
+            }
+
+            final int resourcePaths = in.readInt();
+            for (int j = 0; j < resourcePaths; j++) {
+                final String path = in.readUTF();
+                final int count = in.readInt();
+                final List<String> names = new ArrayList<>(count);
+                for (int k = 0; k < count; k++) {
+                    names.add(in.readUTF());
+                }
+                root.resources.put(path, Collections.unmodifiableList(names));
+            }
+            roots.put(key, root);
+        }
+    }
+
+    private static void writeHeader(DataOutputStream out, ClassHeader header) throws IOException {
+        out.writeUTF(header.getName());
+        out.writeInt(header.getAccessFlags());
+        out.writeBoolean(header.getSuperName() != null);
+        if (header.getSuperName() != null) {
+            out.writeUTF(header.getSuperName());
+        }
+        out.writeShort(header.getMajorVersion());
+        writeNames(out, header.getInterfaceNames());
+        writeNames(out, header.getAnnotationNames());
+    }
+
+    private static ClassHeader readHeader(DataInputStream in) throws IOException {
+        final String name = in.readUTF();
+        final int access = in.readInt();
+        final String superName = in.readBoolean() ? in.readUTF() : null;
+        final int major = in.readUnsignedShort();
+        final List<String> interfaces = readNames(in);
+        final List<String> annotations = readNames(in);
+        return new ClassHeader(name, access, superName,
+                interfaces.isEmpty() ? Collections.emptyList() : Collections.unmodifiableList(interfaces),
+                annotations.isEmpty() ? Collections.emptySet() : Collections.unmodifiableSet(new LinkedHashSet<>(annotations)),
+                major);
+    }
+
+    private static void writeNames(DataOutputStream out, Collection<String> names) throws IOException {
+        out.writeShort(names.size());
+        for (String name : names) {
+            out.writeUTF(name);
+        }
+    }
+
+    private static List<String> readNames(DataInputStream in) throws IOException {
+        final int count = in.readUnsignedShort();
+        final List<String> names = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            names.add(in.readUTF());
+        }
+        return names;
+    }
+
+    //endregion
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2021. ForteScarlet All rights reserved.
+ * Project  parent
+ * File     ScanSession.java
+ *
+ * You can contact the author through the following channels:
+ * github https://github.com/ForteScarlet
+ * gitee  https://gitee.com/ForteScarlet
+ * email  ForteScarlet@163.com
+ * QQ     1149159218
+ */
+
+package love.forte.common.utils.scanner;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.URL;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * 扫描器在多次扫描之间共享的资源：jar文件的索引，以及并行扫描所使用的 {@link ForkJoinPool}。
+ * <p>
+ * 资源在第一次被使用的时候创建，并在 {@link #close()} 时释放。释放后依然可以继续使用，资源会被重新创建。
+ *
+ * @author ForteScarlet
+ */
+final class ScanSession implements Closeable {
+
+    /**
+     * jar文件 -> 其条目的索引。
+     */
+    private final Map<String, JarIndex> jarIndexes = new ConcurrentHashMap<>();
+
+    private volatile int parallelism = 1;
+
+    private ForkJoinPool pool;
+
+
+    int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * 设置并行度。小于等于1时为串行扫描。
+     */
+    synchronized void setParallelism(int parallelism) {
+        if (this.parallelism != parallelism) {
+            shutdownPool();
+            this.parallelism = parallelism;
+        }
+    }
+
+    boolean isParallel() {
+        return parallelism > 1;
+    }
+
+
+    /**
+     * 执行扫描任务。串行时直接在当前线程中执行，否则提交至 {@link ForkJoinPool} 并等待其完成。
+     * 任务中的异常会在当前线程中重新抛出。
+     */
+    <T> T invoke(ForkJoinTask<T> task) {
+        if (!isParallel()) {
+            return task.invoke();
+        }
+        return pool().invoke(task);
+    }
+
+    private synchronized ForkJoinPool pool() {
+        ForkJoinPool pool = this.pool;
+        if (pool == null) {
+            this.pool = pool = new ForkJoinPool(parallelism);
+        }
+        return pool;
+    }
+
+
+    /**
+     * 得到某个jar中条目所在jar文件的索引。同一个jar文件的索引只会构建一次。
+     *
+     * @param url jar中某个条目的URL
+     */
+    JarIndex jarIndex(URL url) throws IOException {
+        final String key = JarIndex.keyOf(url);
+        JarIndex jarIndex = jarIndexes.get(key);
+        if (jarIndex == null) {
+            final JarIndex newIndex = JarIndex.open(url);
+            jarIndex = jarIndexes.putIfAbsent(key, newIndex);
+            if (jarIndex == null) {
+                jarIndex = newIndex;
+            } else {
+                newIndex.close();
+            }
+        }
+        return jarIndex;
+    }
+
+
+    private synchronized void shutdownPool() {
+        final ForkJoinPool pool = this.pool;
+        if (pool != null) {
+            pool.shutdown();
+            this.pool = null;
+        }
+    }
+
+
+    /**
+     * 关闭打开的jar文件与线程池。
+     */
+    @Override
+    public void close() {
+        final Iterator<JarIndex> iterator = jarIndexes.values().iterator();
+        while (iterator.hasNext()) {
+            try {
+                iterator.next().close();
+            } catch (IOException ignored) {
+                // 只是读取，关闭失败不影响结果
+            }
+            iterator.remove();
+        }
+        shutdownPool();
+    }
+}
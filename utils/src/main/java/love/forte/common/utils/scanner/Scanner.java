@@ -13,6 +13,7 @@
 package love.forte.common.utils.scanner;
 
 import java.util.Collection;
+import java.util.function.Consumer;
 import java.util.function.Predicate;
 
 /**
@@ -44,6 +45,41 @@ public interface Scanner<P, T> {
     }
 
 
+    /**
+     * 寻找某个路径下符合匹配规则的目标，并在找到时直接交由 {@code consumer} 处理。
+     * 这些目标不会被记录在扫描器中，也不会出现在 {@link #getCollection()} 的结果里。
+     * <p>
+     * 默认情况下通过包装匹配规则实现：匹配的目标交由 {@code consumer} 处理，同时告知扫描器其不匹配。
+     * 并行扫描时 {@code consumer} 可能会在多个线程中被调用。
+     *
+     * @param path     路径。
+     * @param filter   匹配规则。
+     * @param consumer 匹配目标的处理函数。
+     * @return 扫描器本身，链式调用。
+     */
+    default Scanner<P, T> scan(String path, Predicate<T> filter, Consumer<? super T> consumer) {
+        return scan(path, t -> {
+            if (filter.test(t)) {
+                consumer.accept(t);
+            }
+            return false;
+        });
+    }
+
+
+    /**
+     * 设置扫描的并行度。支持并行扫描的扫描器会将扫描拆分为多个任务并行执行，
+     * 此时传入的过滤规则可能会在多个线程中被调用。
+     * 默认不支持并行扫描，忽略此设置。
+     *
+     * @param parallelism 并行度，小于等于1时为串行扫描。
+     * @return 扫描器本身，链式调用。
+     */
+    default Scanner<P, T> parallelism(int parallelism) {
+        return this;
+    }
+
+
     /**
      * 获取最终的扫描结果，并作为一个集合返回。
      * @return 最终的扫描结果
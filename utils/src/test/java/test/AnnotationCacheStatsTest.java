@@ -0,0 +1,54 @@
+package test;
+
+import love.forte.common.utils.annotation.AnnotationCacheStats;
+import love.forte.common.utils.annotation.AnnotationUtil;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+
+/**
+ * @author ForteScarlet
+ */
+@MyAnnotation
+public class AnnotationCacheStatsTest {
+
+    private static class Cold {
+    }
+
+    @Test
+    public void stats() throws Exception {
+        AnnotationUtil.setStatisticsEnabled(true);
+        try {
+            AnnotationUtil.cleanCache();
+            AnnotationUtil.resetCacheStats();
+
+            AnnotationUtil.getAnnotation(AnnotationCacheStatsTest.class, FatherAnnotation.class);
+            AnnotationUtil.getAnnotation(AnnotationCacheStatsTest.class, FatherAnnotation.class);
+            AnnotationUtil.containsAnnotation(AnnotationCacheStatsTest.class, Deprecated.class);
+
+            AnnotationCacheStats stats = AnnotationUtil.getCacheStats();
+            Assertions.assertEquals(3, stats.getRequestCount());
+            Assertions.assertEquals(1, stats.getMissCount());
+            Assertions.assertEquals(2, stats.getHitCount());
+            Assertions.assertEquals(1, stats.getNegativeHitCount());
+            Assertions.assertTrue(stats.getAverageMissTime() > 0);
+            Assertions.assertEquals(1, stats.getClassIndexCount());
+            Assertions.assertEquals(stats.getClassIndexCount() + stats.getFallbackSize(), stats.getSize());
+
+            ObjectName name = AnnotationUtil.registerCacheStatsMBean();
+            Assertions.assertEquals(2L, ManagementFactory.getPlatformMBeanServer().getAttribute(name, "HitCount"));
+
+            // 构建索引的那一次获取不是否定命中
+            AnnotationUtil.resetCacheStats();
+            AnnotationUtil.containsAnnotation(Cold.class, Deprecated.class);
+            Assertions.assertEquals(0, AnnotationUtil.getCacheStats().getNegativeHitCount());
+            AnnotationUtil.containsAnnotation(Cold.class, Deprecated.class);
+            Assertions.assertEquals(1, AnnotationUtil.getCacheStats().getNegativeHitCount());
+        } finally {
+            AnnotationUtil.setStatisticsEnabled(false);
+        }
+    }
+
+}
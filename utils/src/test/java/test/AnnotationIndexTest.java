@@ -0,0 +1,109 @@
+package test;
+
+import anno.test.Filter;
+import anno.test.Filters;
+import love.forte.common.utils.annotation.AnnotationIndex;
+import love.forte.common.utils.annotation.AnnotationUtil;
+import love.forte.common.utils.annotation.ResolvedAnnotations;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.InputStream;
+import java.lang.annotation.Documented;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author ForteScarlet
+ */
+@MyAnnotation(name = "index")
+public class AnnotationIndexTest {
+
+    @Filter("a")
+    @Filter("b")
+    public void filtered() {
+    }
+
+    /**
+     * 在缺少 {@link Filter} 的类加载器中，读取此类型的方法时会抛出 {@link NoClassDefFoundError}。
+     */
+    public static class MissingMember {
+        public void accept(Filter filter) {
+        }
+    }
+
+    @Test
+    public void metaAnnotations() {
+        AnnotationIndex index = AnnotationUtil.getAnnotationIndex(AnnotationIndexTest.class);
+
+        Assertions.assertTrue(index.contains(MyAnnotation.class));
+        Assertions.assertEquals("index", index.get(FatherAnnotation.class).name());
+        Assertions.assertNotNull(index.get(Documented.class));
+        Assertions.assertNull(index.get(Filters.class));
+        Assertions.assertSame(index.get(FatherAnnotation.class), AnnotationUtil.getAnnotation(AnnotationIndexTest.class, FatherAnnotation.class));
+    }
+
+    @Test
+    public void repeatable() throws NoSuchMethodException {
+        Method method = AnnotationIndexTest.class.getMethod("filtered");
+        Filters filters = AnnotationUtil.getAnnotation(method, Filters.class);
+
+        Assertions.assertNotNull(filters);
+        Assertions.assertEquals(2, filters.value().length);
+        Assertions.assertEquals("a", filters.value()[0].value());
+        Assertions.assertFalse(AnnotationUtil.containsAnnotation(method, Filter.class));
+    }
+
+    @Test
+    public void batch() {
+        ResolvedAnnotations resolved = AnnotationUtil.getAnnotations(AnnotationIndexTest.class, FatherAnnotation.class, Filter.class);
+
+        Assertions.assertEquals("index", resolved.get(FatherAnnotation.class).name());
+        Assertions.assertFalse(resolved.contains(Filter.class));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> resolved.get(MyAnnotation.class));
+    }
+
+    @Test
+    public void classMetadata() throws NoSuchMethodException {
+        AnnotationIndex index = AnnotationUtil.getAnnotationIndex(AnnotationIndexTest.class);
+        Assertions.assertSame(index, AnnotationUtil.getAnnotationIndex(AnnotationIndexTest.class));
+
+        // 不同的Method实例共享同一个索引
+        AnnotationIndex methodIndex = AnnotationUtil.getAnnotationIndex(AnnotationIndexTest.class.getMethod("filtered"));
+        Assertions.assertSame(methodIndex, AnnotationUtil.getAnnotationIndex(AnnotationIndexTest.class.getMethod("filtered")));
+
+        AnnotationUtil.cleanCache();
+        Assertions.assertNotSame(index, AnnotationUtil.getAnnotationIndex(AnnotationIndexTest.class));
+    }
+
+    @Test
+    public void preload() throws Exception {
+        AnnotationUtil.preload(Arrays.asList(AnnotationIndexTest.class, Filter.class)).get(10, TimeUnit.SECONDS);
+
+        Assertions.assertEquals(2, AnnotationUtil.getAnnotation(AnnotationIndexTest.class.getMethod("filtered"), Filters.class).value().length);
+    }
+
+    @Test
+    public void preloadMissingMember(@TempDir Path dir) throws Exception {
+        final String name = MissingMember.class.getName();
+        final Path file = dir.resolve(name.replace('.', '/') + ".class");
+        Files.createDirectories(file.getParent());
+        try (InputStream in = MissingMember.class.getResourceAsStream(name.substring(name.lastIndexOf('.') + 1) + ".class")) {
+            Files.copy(in, file);
+        }
+        try (URLClassLoader loader = new URLClassLoader(new URL[]{dir.toUri().toURL()}, null)) {
+            final Class<?> type = loader.loadClass(name);
+            AnnotationUtil.preload(Collections.singletonList(type)).get(10, TimeUnit.SECONDS);
+
+            Assertions.assertThrows(NoClassDefFoundError.class, type::getDeclaredMethods);
+        }
+    }
+
+}
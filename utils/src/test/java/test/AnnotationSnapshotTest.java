@@ -0,0 +1,54 @@
+package test;
+
+import anno.test.Filter;
+import anno.test.Filters;
+import love.forte.common.utils.annotation.AnnotationSnapshot;
+import love.forte.common.utils.annotation.AnnotationUtil;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.lang.reflect.Method;
+import java.nio.file.Path;
+import java.util.Collections;
+
+/**
+ * @author ForteScarlet
+ */
+@MyAnnotation(name = "snapshot")
+public class AnnotationSnapshotTest {
+
+    @Filter(value = "a", codes = {"1", "2"})
+    @Filter("b")
+    public void filtered() {
+    }
+
+    @Test
+    public void writeAndLoad(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("annotations.snapshot");
+        AnnotationSnapshot.write(file, "fp", Collections.singletonList(AnnotationSnapshotTest.class));
+
+        Assertions.assertNull(AnnotationSnapshot.load(file, "other", getClass().getClassLoader()));
+        AnnotationSnapshot snapshot = AnnotationSnapshot.load(file, "fp", getClass().getClassLoader());
+        Assertions.assertNotNull(snapshot);
+        Assertions.assertEquals(1, snapshot.size());
+
+        Method method = AnnotationSnapshotTest.class.getMethod("filtered");
+        FatherAnnotation father = AnnotationUtil.getAnnotation(AnnotationSnapshotTest.class, FatherAnnotation.class);
+        Filters filters = AnnotationUtil.getAnnotation(method, Filters.class);
+
+        AnnotationUtil.setSnapshot(snapshot);
+        try {
+            AnnotationUtil.cleanCache();
+            Assertions.assertEquals(father, AnnotationUtil.getAnnotation(AnnotationSnapshotTest.class, FatherAnnotation.class));
+            Assertions.assertEquals("snapshot", AnnotationUtil.getAnnotation(AnnotationSnapshotTest.class, FatherAnnotation.class).name());
+            Filters restored = AnnotationUtil.getAnnotation(method, Filters.class);
+            Assertions.assertEquals(filters, restored);
+            Assertions.assertArrayEquals(new String[]{"1", "2"}, restored.value()[0].codes());
+        } finally {
+            AnnotationUtil.setSnapshot(null);
+            AnnotationUtil.cleanCache();
+        }
+    }
+
+}
@@ -0,0 +1,101 @@
+package test;
+
+import anno.test.Filter;
+import love.forte.common.utils.annotation.AnnotationProxyUtil;
+import love.forte.common.utils.annotation.AnnotationUtil;
+import love.forte.common.utils.annotation.AnnotationValueUtil;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Method;
+import java.util.Collections;
+
+/**
+ * @author ForteScarlet
+ */
+public class AnnotationValueUtilTest {
+
+    @Filter(value = "hi", codes = {"1", "2"})
+    public void filtered() {
+    }
+
+    @Test
+    public void setValue() throws NoSuchMethodException {
+        Filter jdk = AnnotationValueUtilTest.class.getMethod("filtered").getAnnotation(Filter.class);
+
+        Filter changed = AnnotationValueUtil.setValue(jdk, "value", "changed");
+        Assertions.assertEquals("changed", changed.value());
+        Assertions.assertArrayEquals(new String[]{"1", "2"}, changed.codes());
+
+        changed = AnnotationValueUtil.setValue(changed, map -> {
+            map.put("trim", true);
+            map.remove("codes");
+        });
+        Assertions.assertTrue(changed.trim());
+        Assertions.assertArrayEquals(new String[]{"1", "2"}, changed.codes());
+
+        Assertions.assertThrows(IllegalArgumentException.class, () -> AnnotationValueUtil.setValue(jdk, "nothing", 1));
+    }
+
+    @Test
+    public void proxyCompatibleWithJdk() throws NoSuchMethodException {
+        Filter jdk = AnnotationValueUtilTest.class.getMethod("filtered").getAnnotation(Filter.class);
+        Filter proxy = AnnotationProxyUtil.proxy(Filter.class, jdk, Collections.emptyMap());
+
+        Assertions.assertEquals(jdk.hashCode(), proxy.hashCode());
+        Assertions.assertEquals(proxy, jdk);
+        Assertions.assertEquals(jdk, proxy);
+    }
+
+    @Test
+    public void hashCodeAfterSetValue() throws NoSuchMethodException {
+        Filter jdk = AnnotationValueUtilTest.class.getMethod("filtered").getAnnotation(Filter.class);
+        Filter proxy = AnnotationProxyUtil.proxy(Filter.class, jdk, Collections.emptyMap());
+        Filter generated = AnnotationProxyUtil.instance(Filter.class, jdk, Collections.singletonMap("value", "changed"));
+
+        final int hash = proxy.hashCode();
+        Assertions.assertNotEquals(proxy, generated);
+
+        // 修改得到新的实例，原实例不变
+        Filter changed = AnnotationValueUtil.setValue(proxy, "value", "changed");
+        Assertions.assertNotSame(proxy, changed);
+        Assertions.assertEquals("hi", proxy.value());
+        Assertions.assertEquals(hash, proxy.hashCode());
+        Assertions.assertEquals(generated.hashCode(), changed.hashCode());
+        Assertions.assertEquals(changed, generated);
+        Assertions.assertEquals(generated, changed);
+    }
+
+    @Test
+    public void updateAnnotation() throws NoSuchMethodException {
+        Method method = AnnotationValueUtilTest.class.getMethod("filtered");
+        Filter cached = AnnotationUtil.getAnnotation(method, Filter.class);
+
+        Filter updated = AnnotationUtil.updateAnnotation(method, Filter.class, f -> AnnotationValueUtil.setValue(f, "value", "updated"));
+        Assertions.assertEquals("updated", updated.value());
+        Assertions.assertSame(updated, AnnotationUtil.getAnnotation(method, Filter.class));
+        Assertions.assertEquals("hi", cached.value());
+        Assertions.assertArrayEquals(new String[]{"1", "2"}, updated.codes());
+
+        Assertions.assertNull(AnnotationUtil.updateAnnotation(method, Deprecated.class, d -> {
+            throw new AssertionError();
+        }));
+
+        AnnotationUtil.cleanCache();
+        Assertions.assertEquals("hi", AnnotationUtil.getAnnotation(method, Filter.class).value());
+    }
+
+    @Test
+    public void property() throws NoSuchMethodException {
+        Filter jdk = AnnotationValueUtilTest.class.getMethod("filtered").getAnnotation(Filter.class);
+        Filter proxy = AnnotationProxyUtil.proxy(Filter.class, jdk, Collections.singletonMap("value", "proxy"));
+
+        Assertions.assertEquals("hi", AnnotationUtil.getAnnotationProperty(jdk, "value", String.class));
+        Assertions.assertEquals("proxy", AnnotationUtil.getAnnotationProperty(proxy, "value", String.class));
+        Assertions.assertEquals(Boolean.TRUE, AnnotationUtil.getAnnotationProperty(proxy, "targetByParent", Boolean.class));
+        Assertions.assertNull(AnnotationUtil.getAnnotationProperty(proxy, "value", Integer.class));
+        Assertions.assertNull(AnnotationUtil.getAnnotationProperty(proxy, "nothing", String.class));
+        Assertions.assertArrayEquals(new String[]{"1", "2"}, (Object[]) AnnotationUtil.getAnnotationProperty(proxy, "codes", String[].class::equals));
+    }
+
+}
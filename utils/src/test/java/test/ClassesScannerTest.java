@@ -0,0 +1,306 @@
+package test;
+
+import anno.test.Filter;
+import anno.test.Filters;
+import anno.test.Listen;
+import love.forte.common.utils.scanner.ClassHeader;
+import love.forte.common.utils.scanner.ClassRef;
+import love.forte.common.utils.scanner.ClassesScanner;
+import love.forte.common.utils.scanner.ResourcesScanner;
+import love.forte.common.utils.scanner.ScanIndex;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.annotation.Retention;
+import java.net.URI;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.stream.Collectors;
+
+/**
+ * @author ForteScarlet
+ */
+public class ClassesScannerTest {
+
+    @Test
+    public void header() throws IOException {
+        final ClassHeader header;
+        try (InputStream in = AnnotationIndexTest.class.getResourceAsStream("AnnotationIndexTest.class")) {
+            header = ClassHeader.read(in);
+        }
+        Assertions.assertEquals(AnnotationIndexTest.class.getName(), header.getName());
+        Assertions.assertEquals(Object.class.getName(), header.getSuperName());
+        Assertions.assertTrue(header.isPublic());
+        Assertions.assertTrue(header.isConcrete());
+        Assertions.assertTrue(header.hasAnnotation(MyAnnotation.class));
+
+        try (InputStream in = Filters.class.getResourceAsStream("Filters.class")) {
+            final ClassHeader filters = ClassHeader.read(in);
+            Assertions.assertTrue(filters.isAnnotation());
+            Assertions.assertTrue(filters.isInterface());
+            Assertions.assertEquals(Collections.singletonList("java.lang.annotation.Annotation"), filters.getInterfaceNames());
+            Assertions.assertTrue(filters.hasAnnotation(Retention.class));
+        }
+
+        Assertions.assertThrows(IllegalArgumentException.class, () -> ClassHeader.read(new byte[]{1, 2, 3, 4}));
+    }
+
+    @Test
+    public void scanByHeader() {
+        final Collection<Class<?>> annotations = new ClassesScanner()
+                .scanByHeader("anno.test", ClassHeader::isAnnotation)
+                .getCollection();
+
+        Assertions.assertTrue(annotations.contains(Filter.class));
+        Assertions.assertTrue(annotations.contains(Filters.class));
+        Assertions.assertTrue(annotations.contains(Listen.class));
+        Assertions.assertTrue(annotations.stream().allMatch(Class::isAnnotation));
+
+        final Collection<Class<?>> none = new ClassesScanner()
+                .scanByHeader("anno.test", ClassHeader::isAnnotation, c -> {
+                    Assertions.assertTrue(c.isAnnotation());
+                    return false;
+                })
+                .getCollection();
+        Assertions.assertTrue(none.isEmpty());
+    }
+
+    @Test
+    public void parallel() {
+        final Collection<Class<?>> serial = new ClassesScanner().scan("anno").scan("test").getCollection();
+        final Collection<Class<?>> parallel = new ClassesScanner().parallelism(4).scan("anno").scan("test").getCollection();
+        Assertions.assertTrue(serial.contains(ClassesScannerTest.class));
+        Assertions.assertEquals(new HashSet<>(serial), new HashSet<>(parallel));
+
+        final Set<URI> serialResources = new ResourcesScanner().scan("anno").getCollection();
+        final Set<URI> parallelResources = new ResourcesScanner().parallelism(4).scan("anno").getCollection();
+        Assertions.assertFalse(serialResources.isEmpty());
+        Assertions.assertEquals(serialResources, parallelResources);
+    }
+
+    @Test
+    public void scanConsumer() {
+        final Collection<Class<?>> expected = new ClassesScanner().scan("anno.test").getCollection();
+
+        final List<Class<?>> found = new ArrayList<>();
+        final ClassesScanner scanner = new ClassesScanner();
+        scanner.scan("anno.test", c -> true, found::add);
+        Assertions.assertEquals(new HashSet<>(expected), new HashSet<>(found));
+        Assertions.assertEquals(expected.size(), found.size());
+        Assertions.assertTrue(scanner.getCollection().isEmpty());
+
+        final Set<Class<?>> parallel = Collections.newSetFromMap(new ConcurrentHashMap<>());
+        new ClassesScanner().parallelism(4).scanByHeader("anno.test", ClassHeader::isAnnotation, c -> true, parallel::add).close();
+        Assertions.assertTrue(parallel.contains(Filter.class));
+        Assertions.assertTrue(parallel.stream().allMatch(Class::isAnnotation));
+
+        final List<URI> resources = new ArrayList<>();
+        final ResourcesScanner resourcesScanner = new ResourcesScanner();
+        resourcesScanner.scan("anno", u -> true, resources::add);
+        Assertions.assertEquals(new ResourcesScanner().scan("anno").getCollection(), new HashSet<>(resources));
+        Assertions.assertTrue(resourcesScanner.getCollection().isEmpty());
+    }
+
+    @Test
+    public void scanRefs(@TempDir Path dir) throws IOException {
+        final Path jar = dir.resolve("refs.jar");
+        try (JarOutputStream out = new JarOutputStream(Files.newOutputStream(jar))) {
+            out.putNextEntry(new JarEntry("anno/"));
+            out.closeEntry();
+            out.putNextEntry(new JarEntry("anno/test/"));
+            out.closeEntry();
+            copy(out, "anno/test/Filter.class", Filter.class);
+            copy(out, "anno/test/Listen.class", Listen.class);
+        }
+
+        try (TrackingClassLoader loader = new TrackingClassLoader(jar.toUri().toURL())) {
+            final List<ClassRef> refs = new ClassesScanner(loader).getRefs("anno.test", ClassHeader::isAnnotation);
+            Assertions.assertEquals(2, refs.size());
+            for (ClassRef ref : refs) {
+                Assertions.assertFalse(ref.isResolved());
+                Assertions.assertEquals(ref.getName(), ref.getHeader().getName());
+                Assertions.assertEquals(jar.toUri().toURL().toString(), ref.getSource().toString());
+            }
+            // 扫描时没有加载任何类
+            Assertions.assertTrue(refs.stream().noneMatch(ref -> loader.isLoaded(ref.getName())));
+
+            final ClassRef filter = refs.stream().filter(ref -> ref.getName().equals("anno.test.Filter")).findFirst().orElseThrow(AssertionError::new);
+            final Class<?> resolved = filter.resolve();
+            Assertions.assertSame(resolved, filter.resolve());
+            Assertions.assertSame(loader, resolved.getClassLoader());
+            Assertions.assertTrue(loader.isLoaded("anno.test.Filter"));
+            Assertions.assertFalse(loader.isLoaded("anno.test.Listen"));
+        }
+
+        final List<ClassRef> local = new ClassesScanner().getRefs("test", h -> h.getName().equals(ClassesScannerTest.class.getName()));
+        Assertions.assertEquals(1, local.size());
+        Assertions.assertSame(ClassesScannerTest.class, local.get(0).resolve());
+        Assertions.assertEquals(ClassesScannerTest.class.getProtectionDomain().getCodeSource().getLocation().toString(), local.get(0).getSource().toString());
+    }
+
+    private static final class TrackingClassLoader extends URLClassLoader {
+        private TrackingClassLoader(URL url) {
+            super(new URL[]{url}, null);
+        }
+
+        boolean isLoaded(String name) {
+            return findLoadedClass(name) != null;
+        }
+    }
+
+    @Test
+    public void scanJar(@TempDir Path dir) throws IOException {
+        final Path jar = dir.resolve("scan.jar");
+        try (JarOutputStream out = new JarOutputStream(Files.newOutputStream(jar))) {
+            for (String directory : new String[]{"anno/", "anno/test/", "anno/testing/", "other/", "other/anno/", "other/anno/test/"}) {
+                out.putNextEntry(new JarEntry(directory));
+                out.closeEntry();
+            }
+            copy(out, "anno/test/Filter.class", Filter.class);
+            copy(out, "anno/test/Listen.class", Listen.class);
+            // 包路径相似，但是不在 anno.test 下
+            copy(out, "other/anno/test/Filter.class", Filter.class);
+            copy(out, "anno/testing/Listen.class", Listen.class);
+        }
+
+        try (URLClassLoader loader = new URLClassLoader(new URL[]{jar.toUri().toURL()}, null);
+             ClassesScanner scanner = new ClassesScanner(loader)) {
+            final Set<String> names = scanner.scan("anno.test").scanByHeader("anno.test", ClassHeader::isAnnotation)
+                    .getCollection().stream().map(Class::getName).collect(Collectors.toSet());
+            Assertions.assertEquals(new HashSet<>(Arrays.asList("anno.test.Filter", "anno.test.Listen")), names);
+        }
+    }
+
+    @Test
+    public void scanIndex(@TempDir Path dir) throws IOException {
+        final Path jar = dir.resolve("index.jar");
+        final Path indexFile = dir.resolve("scan.idx");
+        try (JarOutputStream out = new JarOutputStream(Files.newOutputStream(jar))) {
+            out.putNextEntry(new JarEntry("anno/"));
+            out.closeEntry();
+            out.putNextEntry(new JarEntry("anno/test/"));
+            out.closeEntry();
+            copy(out, "anno/test/Filter.class", Filter.class);
+            copy(out, "anno/test/Listen.class", Listen.class);
+        }
+
+        final ScanIndex index = ScanIndex.load(indexFile);
+        Assertions.assertEquals(0, index.size());
+        try (URLClassLoader loader = new URLClassLoader(new URL[]{jar.toUri().toURL()}, null)) {
+            Assertions.assertEquals(2, new ClassesScanner(loader).scanIndex(index).scan("anno.test").getCollection().size());
+            Assertions.assertEquals(2, new ResourcesScanner(loader).scanIndex(index).scan("anno").getCollection().size());
+        }
+        index.save();
+        Assertions.assertTrue(Files.exists(indexFile));
+
+        // 重新读取的索引，jar未变化
+        final ScanIndex loaded = ScanIndex.load(indexFile);
+        Assertions.assertEquals(1, loaded.size());
+        try (URLClassLoader loader = new URLClassLoader(new URL[]{jar.toUri().toURL()}, null)) {
+            final Set<String> names = new ClassesScanner(loader).scanIndex(loaded)
+                    .scanByHeader("anno.test", h -> h.getName().endsWith("Listen"))
+                    .getCollection().stream().map(Class::getName).collect(Collectors.toSet());
+            Assertions.assertEquals(Collections.singleton("anno.test.Listen"), names);
+            Assertions.assertEquals(2, new ResourcesScanner(loader).scanIndex(loaded).scan("anno").getCollection().size());
+        }
+
+        // jar发生变化后重新扫描
+        try (JarOutputStream out = new JarOutputStream(Files.newOutputStream(jar))) {
+            out.putNextEntry(new JarEntry("anno/"));
+            out.closeEntry();
+            out.putNextEntry(new JarEntry("anno/test/"));
+            out.closeEntry();
+            copy(out, "anno/test/Filter.class", Filter.class);
+        }
+        try (URLClassLoader loader = new URLClassLoader(new URL[]{jar.toUri().toURL()}, null)) {
+            final Collection<Class<?>> classes = new ClassesScanner(loader).scanIndex(loaded).scan("anno.test").getCollection();
+            Assertions.assertEquals(1, classes.size());
+            Assertions.assertEquals("anno.test.Filter", classes.iterator().next().getName());
+        }
+
+        // 损坏的索引文件
+        Files.write(indexFile, new byte[]{1, 2, 3});
+        Assertions.assertEquals(0, ScanIndex.load(indexFile).size());
+    }
+
+    @Test
+    public void splitPackage(@TempDir Path dir) throws IOException {
+        final Path first = dir.resolve("first.jar");
+        final Path second = dir.resolve("second.jar");
+        writeJar(first, Filter.class, Listen.class);
+        // Listen 同时存在于两个jar中
+        writeJar(second, Listen.class, Filters.class);
+
+        try (URLClassLoader loader = new URLClassLoader(new URL[]{first.toUri().toURL(), second.toUri().toURL()}, null)) {
+            final Set<String> expected = new HashSet<>(Arrays.asList("anno.test.Filter", "anno.test.Listen", "anno.test.Filters"));
+            for (int parallelism : new int[]{1, 4}) {
+                try (ClassesScanner scanner = new ClassesScanner(loader).parallelism(parallelism)) {
+                    final List<String> names = scanner.scan("anno.test").getCollection().stream().map(Class::getName).collect(Collectors.toList());
+                    Assertions.assertEquals(3, names.size());
+                    Assertions.assertEquals(expected, new HashSet<>(names));
+
+                    final List<ClassRef> refs = scanner.getRefs("anno.test", h -> true);
+                    Assertions.assertEquals(3, refs.size());
+                    Assertions.assertEquals(expected, refs.stream().map(ClassRef::getName).collect(Collectors.toSet()));
+
+                    // 无论是否并行，都保留第一个根中的类
+                    final ClassRef listen = scanner.getRefs("anno.test", h -> h.getName().endsWith("Listen")).get(0);
+                    Assertions.assertEquals(first.toUri().toURL().toString(), listen.getSource().toString());
+                }
+
+                final List<URI> resources = new ArrayList<>();
+                new ResourcesScanner(loader).parallelism(parallelism).scan("anno/test", u -> true, resources::add).close();
+                Assertions.assertEquals(3, resources.size());
+            }
+        }
+
+        // 目录中的资源得到的是文件的URI，保留的应当总是第一个根中的文件
+        final Path classes = dir.resolve("classes");
+        Files.createDirectories(classes.resolve("anno/test"));
+        try (InputStream in = Listen.class.getResourceAsStream("Listen.class")) {
+            Files.copy(in, classes.resolve("anno/test/Listen.class"));
+        }
+        try (URLClassLoader loader = new URLClassLoader(new URL[]{classes.toUri().toURL(), second.toUri().toURL()}, null)) {
+            for (int parallelism : new int[]{1, 4}) {
+                final List<URI> resources = new ArrayList<>();
+                new ResourcesScanner(loader).parallelism(parallelism).scan("anno/test", u -> true, resources::add).close();
+                Assertions.assertEquals(2, resources.size());
+                final URI listen = resources.stream().filter(u -> u.toString().endsWith("Listen.class")).findFirst().orElseThrow(IllegalStateException::new);
+                Assertions.assertEquals("file", listen.getScheme(), listen::toString);
+            }
+        }
+    }
+
+    private static void writeJar(Path jar, Class<?>... types) throws IOException {
+        try (JarOutputStream out = new JarOutputStream(Files.newOutputStream(jar))) {
+            out.putNextEntry(new JarEntry("anno/"));
+            out.closeEntry();
+            out.putNextEntry(new JarEntry("anno/test/"));
+            out.closeEntry();
+            for (Class<?> type : types) {
+                copy(out, type.getName().replace('.', '/') + ".class", type);
+            }
+        }
+    }
+
+    private static void copy(JarOutputStream out, String name, Class<?> type) throws IOException {
+        out.putNextEntry(new JarEntry(name));
+        try (InputStream in = type.getResourceAsStream(type.getSimpleName() + ".class")) {
+            final byte[] buffer = new byte[4096];
+            int len;
+            while ((len = in.read(buffer)) != -1) {
+                out.write(buffer, 0, len);
+            }
+        }
+        out.closeEntry();
+    }
+}
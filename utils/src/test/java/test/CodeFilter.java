@@ -0,0 +1,14 @@
+package test;
+
+import anno.test.Filter;
+
+import java.lang.annotation.*;
+
+/**
+ * @author ForteScarlet
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+@Filter("code")
+public @interface CodeFilter {
+}
@@ -0,0 +1,92 @@
+package test;
+
+import love.forte.common.collections.ConcurrentLruMap;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author ForteScarlet
+ */
+public class ConcurrentLruMapTest {
+
+    @Test
+    public void evictUnreferenced() {
+        ConcurrentLruMap<Integer, String> map = new ConcurrentLruMap<>(4);
+        for (int i = 0; i < 4; i++) {
+            map.put(i, "v" + i);
+        }
+        // 访问 0，使其获得第二次机会
+        Assertions.assertEquals("v0", map.get(0));
+        map.put(4, "v4");
+
+        Assertions.assertEquals(4, map.size());
+        Assertions.assertTrue(map.containsKey(0));
+        Assertions.assertFalse(map.containsKey(1));
+    }
+
+    @Test
+    public void concurrentAccess() throws InterruptedException {
+        ConcurrentLruMap<Integer, Integer> map = new ConcurrentLruMap<>(64);
+        AtomicInteger failures = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int t = 0; t < 8; t++) {
+            final int seed = t;
+            executor.execute(() -> {
+                for (int i = 0; i < 10000; i++) {
+                    int key = (i * 31 + seed) % 256;
+                    map.computeIfAbsent(key, k -> k);
+                    Integer v = map.get(key);
+                    if (v != null && v != key) {
+                        failures.incrementAndGet();
+                    }
+                    if (i % 7 == 0) {
+                        map.remove(key);
+                    }
+                }
+            });
+        }
+        executor.shutdown();
+        Assertions.assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+        Assertions.assertEquals(0, failures.get());
+        Assertions.assertTrue(map.size() <= 64 + 8);
+    }
+
+    @Test
+    public void evictionListener() {
+        ConcurrentLruMap<Integer, Integer> map = new ConcurrentLruMap<>(4);
+        AtomicInteger evicted = new AtomicInteger();
+        map.setEvictionListener((k, v) -> evicted.incrementAndGet());
+        for (int i = 0; i < 10; i++) {
+            map.put(i, i);
+        }
+        map.remove(9);
+        Assertions.assertEquals(6, evicted.get());
+    }
+
+    @Test
+    public void cleanRemovedBelowCapacity() {
+        ConcurrentLruMap<Integer, Integer> map = new ConcurrentLruMap<>(8);
+        AtomicInteger evicted = new AtomicInteger();
+        map.setEvictionListener((k, v) -> evicted.incrementAndGet());
+        for (int i = 0; i < 4; i++) {
+            map.put(i, i);
+        }
+        // 反复插入、移除，使队列中堆积超过容量两倍的已移除节点
+        for (int i = 100; i < 200; i++) {
+            map.put(i, i);
+            map.remove(i);
+        }
+
+        Assertions.assertEquals(0, evicted.get());
+        Assertions.assertEquals(4, map.size());
+        for (int i = 0; i < 4; i++) {
+            Assertions.assertEquals(i, map.get(i));
+        }
+    }
+
+}
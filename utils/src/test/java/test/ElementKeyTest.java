@@ -0,0 +1,39 @@
+package test;
+
+import anno.test.Filter;
+import love.forte.common.utils.annotation.AnnotatedElementKey;
+import love.forte.common.utils.annotation.AnnotationUtil;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Method;
+
+/**
+ * @author ForteScarlet
+ */
+public class ElementKeyTest {
+
+    @Filter("a")
+    @Filter("b")
+    public void filtered() {
+    }
+
+    public void parameter(@Deprecated String p) {
+    }
+
+    @Test
+    public void elementKey() throws NoSuchMethodException {
+        Method filtered = ElementKeyTest.class.getMethod("filtered");
+        AnnotatedElementKey key = AnnotationUtil.getElementKey(filtered);
+        Assertions.assertNotNull(key);
+        Assertions.assertSame(key, AnnotationUtil.getElementKey(ElementKeyTest.class.getMethod("filtered")));
+        Assertions.assertSame(ElementKeyTest.class, key.getDeclaringClass());
+
+        Method parameterMethod = ElementKeyTest.class.getMethod("parameter", String.class);
+        AnnotatedElementKey parameterKey = AnnotationUtil.getElementKey(parameterMethod.getParameters()[0]);
+        Assertions.assertSame(parameterKey, AnnotationUtil.getElementKey(ElementKeyTest.class.getMethod("parameter", String.class).getParameters()[0]));
+        Assertions.assertNotSame(key, parameterKey);
+        Assertions.assertTrue(AnnotationUtil.containsAnnotation(parameterMethod.getParameters()[0], Deprecated.class));
+    }
+
+}
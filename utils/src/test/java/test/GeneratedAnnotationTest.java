@@ -0,0 +1,95 @@
+package test;
+
+import anno.test.Filter;
+import anno.test.Filters;
+import love.forte.common.utils.annotation.AnnotationProxyUtil;
+import love.forte.common.utils.annotation.AnnotationUtil;
+import love.forte.common.utils.annotation.AnnotationValueUtil;
+import love.forte.common.utils.annotation.GeneratedAnnotation;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * @author ForteScarlet
+ */
+public class GeneratedAnnotationTest {
+
+    @Filter(value = "hi", codes = {"1", "2"}, trim = true)
+    public void filtered() {
+    }
+
+    @Filter("a")
+    @Filter("b")
+    @CodeFilter
+    public void mixed() {
+    }
+
+    @MyAnnotation(name = "generated")
+    public static class Mapped {
+    }
+
+    @Test
+    public void sameAsJdkAnnotation() throws NoSuchMethodException {
+        Filter jdk = GeneratedAnnotationTest.class.getMethod("filtered").getAnnotation(Filter.class);
+
+        Map<String, Object> params = new HashMap<>();
+        params.put("value", "hi");
+        params.put("codes", new String[]{"1", "2"});
+        params.put("trim", true);
+        Filter generated = AnnotationProxyUtil.instance(Filter.class, params);
+
+        Assertions.assertTrue(generated instanceof GeneratedAnnotation);
+        Assertions.assertEquals(Filter.class, generated.annotationType());
+        Assertions.assertEquals("hi", generated.value());
+        Assertions.assertTrue(generated.trim());
+        Assertions.assertTrue(generated.targetByParent());
+        Assertions.assertEquals(jdk.hashCode(), generated.hashCode());
+        Assertions.assertEquals(generated, jdk);
+        Assertions.assertEquals(jdk, generated);
+
+        // 数组值返回副本
+        generated.codes()[0] = "changed";
+        Assertions.assertEquals("1", generated.codes()[0]);
+    }
+
+    @Test
+    public void baseAnnotation() throws NoSuchMethodException {
+        Filter jdk = GeneratedAnnotationTest.class.getMethod("filtered").getAnnotation(Filter.class);
+        Filter generated = AnnotationProxyUtil.instance(Filter.class, jdk, Collections.singletonMap("value", "override"));
+
+        Assertions.assertEquals("override", generated.value());
+        Assertions.assertArrayEquals(jdk.codes(), generated.codes());
+    }
+
+    @Test
+    public void fallbackToProxy() {
+        // name 没有默认值
+        FatherAnnotation father = AnnotationProxyUtil.instance(FatherAnnotation.class, Collections.emptyMap());
+        Assertions.assertTrue(Proxy.isProxyClass(father.getClass()));
+    }
+
+    @Test
+    public void synthesizedByAnnotationUtil() throws NoSuchMethodException {
+        // 映射
+        FatherAnnotation father = AnnotationUtil.getAnnotation(Mapped.class, FatherAnnotation.class);
+        Assertions.assertTrue(father instanceof GeneratedAnnotation);
+        Assertions.assertEquals("generated", father.name());
+
+        // 合并的可重复注解
+        Filters filters = AnnotationUtil.getAnnotation(GeneratedAnnotationTest.class.getMethod("mixed"), Filters.class);
+        Assertions.assertTrue(filters instanceof GeneratedAnnotation);
+        Assertions.assertEquals(3, filters.value().length);
+
+        // 修改值
+        Filter changed = AnnotationValueUtil.setValue(filters.value()[0], "value", "changed");
+        Assertions.assertTrue(changed instanceof GeneratedAnnotation);
+        Assertions.assertEquals("changed", changed.value());
+        Assertions.assertEquals("a", filters.value()[0].value());
+    }
+
+}
@@ -0,0 +1,67 @@
+package test;
+
+import anno.test.Listen;
+import love.forte.common.utils.annotation.AnnotationUtil;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Method;
+
+/**
+ * @author ForteScarlet
+ */
+public class InheritedAnnotationTest {
+
+    @Listen("type")
+    public interface Handler {
+        @Listen("method")
+        void handle(String message);
+    }
+
+    public static abstract class AbstractHandler implements Handler {
+    }
+
+    public static class MyHandler extends AbstractHandler {
+        @Override
+        public void handle(String message) {
+        }
+    }
+
+    public interface GenericHandler<T> {
+        @Listen("generic")
+        void on(T message);
+    }
+
+    public static class StringHandler implements GenericHandler<String> {
+        @Override
+        public void on(String message) {
+        }
+    }
+
+    @Test
+    public void inherited() throws NoSuchMethodException {
+        Assertions.assertNull(AnnotationUtil.getAnnotation(MyHandler.class, Listen.class));
+        Listen typeListen = AnnotationUtil.getInheritedAnnotation(MyHandler.class, Listen.class);
+        Assertions.assertNotNull(typeListen);
+        Assertions.assertEquals("type", typeListen.value());
+        Assertions.assertSame(typeListen, AnnotationUtil.getInheritedAnnotation(MyHandler.class, Listen.class));
+
+        Method handle = MyHandler.class.getMethod("handle", String.class);
+        Assertions.assertNull(AnnotationUtil.getAnnotation(handle, Listen.class));
+        Listen methodListen = AnnotationUtil.getInheritedAnnotation(handle, Listen.class);
+        Assertions.assertNotNull(methodListen);
+        Assertions.assertEquals("method", methodListen.value());
+
+        Assertions.assertNull(AnnotationUtil.getInheritedAnnotation(handle, Deprecated.class));
+    }
+
+    @Test
+    public void genericInterface() throws NoSuchMethodException {
+        Method on = StringHandler.class.getMethod("on", String.class);
+        Assertions.assertNull(AnnotationUtil.getAnnotation(on, Listen.class));
+        Listen listen = AnnotationUtil.getInheritedAnnotation(on, Listen.class);
+        Assertions.assertNotNull(listen);
+        Assertions.assertEquals("generic", listen.value());
+    }
+
+}
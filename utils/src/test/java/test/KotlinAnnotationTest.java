@@ -0,0 +1,39 @@
+package test;
+
+import anno.test.Filter;
+import anno.test.Filters;
+import kotlin.jvm.JvmClassMappingKt;
+import kotlin.reflect.KCallable;
+import love.forte.common.utils.annotation.AnnotationKUtil;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Method;
+
+/**
+ * @author ForteScarlet
+ */
+@MyAnnotation(name = "kotlin")
+public class KotlinAnnotationTest {
+
+    @Filter("a")
+    @Filter("b")
+    @CodeFilter
+    public void mixed() {
+    }
+
+    @Test
+    public void kotlinBridge() throws NoSuchMethodException {
+        Assertions.assertEquals("kotlin", AnnotationKUtil.getAnnotation(
+                JvmClassMappingKt.getKotlinClass(KotlinAnnotationTest.class),
+                JvmClassMappingKt.getKotlinClass(FatherAnnotation.class)).name());
+
+        KCallable<?> mixed = JvmClassMappingKt.getKotlinClass(KotlinAnnotationTest.class).getMembers().stream()
+                .filter(c -> c.getName().equals("mixed")).findFirst().orElseThrow(IllegalStateException::new);
+        Method method = KotlinAnnotationTest.class.getMethod("mixed");
+        Assertions.assertEquals(method, AnnotationKUtil.javaAnnotatedElement(mixed));
+        Assertions.assertSame(AnnotationKUtil.javaAnnotatedElement(mixed), AnnotationKUtil.javaAnnotatedElement(mixed));
+        Assertions.assertEquals(3, AnnotationKUtil.getAnnotation(mixed, JvmClassMappingKt.getKotlinClass(Filters.class)).value().length);
+    }
+
+}
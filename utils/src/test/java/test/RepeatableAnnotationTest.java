@@ -0,0 +1,31 @@
+package test;
+
+import anno.test.Filter;
+import anno.test.Filters;
+import love.forte.common.utils.annotation.AnnotationUtil;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author ForteScarlet
+ */
+public class RepeatableAnnotationTest {
+
+    @Filter("a")
+    @Filter("b")
+    @CodeFilter
+    public void mixed() {
+    }
+
+    @Test
+    public void mixRepeatable() throws NoSuchMethodException {
+        Filters filters = AnnotationUtil.getAnnotation(RepeatableAnnotationTest.class.getMethod("mixed"), Filters.class);
+
+        Assertions.assertNotNull(filters);
+        Assertions.assertEquals(3, filters.value().length);
+        Assertions.assertEquals(Filter[].class, filters.value().getClass());
+        Assertions.assertEquals("a", filters.value()[0].value());
+        Assertions.assertEquals("code", filters.value()[2].value());
+    }
+
+}